@@ -1,5 +1,8 @@
 package info.jallaix.message.bean;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import info.jallaix.message.dao.interceptor.I18nMessage;
+import info.jallaix.message.dao.interceptor.I18nMessageEntity;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
@@ -16,13 +19,15 @@ import java.util.Collection;
  *    <li>{@code description} - {@link String} - Message code for the domain description</li>
  *    <li>{@code defaultLanguageTag} - {@link String} - Linked default language identifier</li>
  *    <li>{@code availableLanguageTags} - {@link Collection<String>} - Collection of available language tags (in BCP 47 format) for the domain</li>
+ *    <li>{@code version} - {@link Long} - Version of the domain document</li>
  * </ul>
  */
 @Document(indexName = "message", type = "domain", shards = 1, replicas = 0)
 @Data
+@EqualsAndHashCode(exclude = "version")
 @NoArgsConstructor
 @AllArgsConstructor
-public class Domain {
+public class Domain implements I18nMessageEntity<Domain> {
 
     /**
      * Message type for the domain description
@@ -91,6 +96,7 @@ public class Domain {
      * Message code for the domain description
      */
     @Field(type = FieldType.String, index = FieldIndex.not_analyzed)
+    @I18nMessage
     private String description;
 
     /**
@@ -104,4 +110,42 @@ public class Domain {
      */
     @Field(type = FieldType.String, index = FieldIndex.not_analyzed)
     private Collection<String> availableLanguageTags;
+
+    /**
+     * Version of the domain document, read from the document metadata and never stored in its source.
+     * When saving the domain, a non-{@code null} version is the version the stored domain must have.
+     * It isn't a Spring Data version property, so that the REST layer doesn't derive entity tags from it,
+     * see {@link info.jallaix.message.dao.DomainDaoCustom#findEntityTag(String)}.
+     */
+    @JsonIgnore
+    private Long version;
+
+
+    /**
+     * Constructor without version
+     *
+     * @param id                    Identifier
+     * @param code                  Domain code
+     * @param description           Message code for the domain description
+     * @param defaultLanguageTag    Default language tag (in BCP 47 format) for the domain
+     * @param availableLanguageTags Collection of available language tags (in BCP 47 format) for the domain
+     */
+    public Domain(String id, String code, String description, String defaultLanguageTag, Collection<String> availableLanguageTags) {
+        this(id, code, description, defaultLanguageTag, availableLanguageTags, null);
+    }
+
+
+    /*----------------------------------------------------------------------------------------------------------------*/
+    /*                                                   Persisted view                                               */
+    /*----------------------------------------------------------------------------------------------------------------*/
+
+    /**
+     * Get the persisted view of the domain: a shallow copy sharing all fields, except the description set to its message type.
+     *
+     * @return A new domain with the description's message type
+     */
+    @Override
+    public Domain toPersistedView() {
+        return new Domain(id, code, DOMAIN_DESCRIPTION_TYPE, defaultLanguageTag, availableLanguageTags, version);
+    }
 }
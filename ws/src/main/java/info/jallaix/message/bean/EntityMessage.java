@@ -1,5 +1,6 @@
 package info.jallaix.message.bean;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
@@ -7,6 +8,9 @@ import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldIndex;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
 /**
  * This bean contains persistent data related to a message linked to an entity property:
  * <ul>
@@ -16,13 +20,16 @@ import org.springframework.data.elasticsearch.annotations.FieldType;
  * <li>{@code entityId} - {@link String} - Identifier of the entity linked to the message
  * <li>{@code languageTag} - {@link String} - Language tag of the message
  * <li>{@code content} - {@link String} - Content of the message
+ * <li>{@code version} - {@link Long} - Version of the message document
  * </ul>
  * <p>
  *     A domain identifier, a message type, an entity identifier and a language tag uniquely identify a message content.
+ *     The message identifier is derived from them, see {@link #buildId(String, String, String, String)}.
  * </p>
  */
 @Document(indexName = "message", type = "entity_message", shards = 1, replicas = 0)
 @Data
+@EqualsAndHashCode(exclude = "version")
 @NoArgsConstructor
 @AllArgsConstructor
 public class EntityMessage {
@@ -114,4 +121,51 @@ public class EntityMessage {
      */
     @Field(type = FieldType.String, index = FieldIndex.analyzed)
     private String content;
+
+    /**
+     * Version of the message document, read from the document metadata and never stored in its source.
+     * {@code null} if the message is neither read by identifier nor written, e.g. when it's searched.
+     * It isn't a Spring Data version property, so that neither the REST layer nor the repository saves rely on it:
+     * the message endpoints don't support conditional requests, messages are conditionally written through domains only.
+     */
+    @JsonIgnore
+    private Long version;
+
+
+    /**
+     * Constructor without version
+     *
+     * @param id          Internal identifier
+     * @param domainId    Domain identifier
+     * @param type        Message type
+     * @param entityId    Entity identifier
+     * @param languageTag Language tag
+     * @param content     Message content
+     */
+    public EntityMessage(String id, String domainId, String type, String entityId, String languageTag, String content) {
+        this(id, domainId, type, entityId, languageTag, content, null);
+    }
+
+
+    /*----------------------------------------------------------------------------------------------------------------*/
+    /*                                                  Identifier derivation                                         */
+    /*----------------------------------------------------------------------------------------------------------------*/
+
+    /**
+     * Build the identifier of a message from the data that uniquely identify it.
+     * Writing a message with this identifier replaces any existing message for the same data,
+     * and a message can be read by identifier instead of being searched.
+     *
+     * @param domainId    Domain identifier
+     * @param type        Message type
+     * @param entityId    Entity identifier
+     * @param languageTag Language tag
+     * @return The message identifier
+     */
+    public static String buildId(String domainId, String type, String entityId, String languageTag) {
+
+        return UUID.nameUUIDFromBytes(
+                String.join("\u0000", domainId, type, entityId, languageTag).getBytes(StandardCharsets.UTF_8))
+                .toString();
+    }
 }
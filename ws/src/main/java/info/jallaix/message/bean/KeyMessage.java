@@ -7,6 +7,9 @@ import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldIndex;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
 /**
  * This bean contains persistent data related to a message linked to a custom key:
  * <ul>
@@ -18,6 +21,7 @@ import org.springframework.data.elasticsearch.annotations.FieldType;
  * </ul>
  * <p>
  *     A domain identifier, a message key, and a language tag uniquely identify a message content.
+ *     The message identifier is derived from them, see {@link #buildId(String, String, String)}.
  * </p>
  */
 @Document(indexName = "message", type = "key_message", shards = 1, replicas = 0)
@@ -100,4 +104,26 @@ public class KeyMessage {
      */
     @Field(type = FieldType.String, index = FieldIndex.analyzed)
     private String content;
+
+
+    /*----------------------------------------------------------------------------------------------------------------*/
+    /*                                                  Identifier derivation                                         */
+    /*----------------------------------------------------------------------------------------------------------------*/
+
+    /**
+     * Build the identifier of a message from the data that uniquely identify it.
+     * Writing a message with this identifier replaces any existing message for the same data,
+     * and a message can be read by identifier instead of being searched.
+     *
+     * @param domainId    Domain identifier
+     * @param key         Message key
+     * @param languageTag Language tag
+     * @return The message identifier
+     */
+    public static String buildId(String domainId, String key, String languageTag) {
+
+        return UUID.nameUUIDFromBytes(
+                String.join("\u0000", domainId, key, languageTag).getBytes(StandardCharsets.UTF_8))
+                .toString();
+    }
 }
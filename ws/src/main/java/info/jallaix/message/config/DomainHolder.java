@@ -13,4 +13,16 @@ public interface DomainHolder {
      * @return The found domain
      */
     Domain getDomain();
+
+    /**
+     * Get the version of the held domain, incremented each time a reload changes it
+     *
+     * @return The domain version
+     */
+    long getVersion();
+
+    /**
+     * Reload the internationalized domain of the application, so that its changes are taken into account
+     */
+    void reload();
 }
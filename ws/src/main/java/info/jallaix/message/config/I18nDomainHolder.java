@@ -3,32 +3,103 @@ package info.jallaix.message.config;
 import info.jallaix.message.bean.Domain;
 import info.jallaix.message.bean.EntityMessage;
 import lombok.Setter;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.DefaultResultMapper;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.query.Criteria;
 import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
 import org.springframework.data.elasticsearch.core.query.GetQuery;
-import org.springframework.data.elasticsearch.core.query.IndexQuery;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.*;
 
 import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 
 /**
- * The i18n domain holder gets the application domain from the ES index or create the domain if it doesn't exist.
+ * <p>The i18n domain holder gets the application domain from the ES index or create the domain if it doesn't exist.</p>
+ * <p>The domain is held in a versioned snapshot, published through a volatile field so that reads don't lock.
+ * The snapshot is replaced when a reload finds a changed domain: reloads are triggered when the domain is saved
+ * through the DAO, and periodically in the background so that changes made on other nodes are eventually taken
+ * into account.</p>
+ * <p>With a ready timeout, the domain is bootstrapped in the background when the application is ready, instead of
+ * in the first request thread. Requests received before the end of the bootstrap wait for it until the timeout,
+ * then fail with a {@link I18nDomainNotReadyException}. A failed bootstrap is retried, until the holder is shut down:
+ * waiting requests then fail without waiting for the timeout.</p>
+ * <p>The bootstrap is idempotent, so that nodes starting at the same time don't create several I18N domains:
+ * the domain identifier is derived from its code, the domain is only created if no other node has created it,
+ * and the index and mappings are created only if needed.</p>
  */
-public class I18nDomainHolder implements DomainHolder {
+public class I18nDomainHolder implements DomainHolder, ApplicationListener<ApplicationReadyEvent> {
 
     public static final String DOMAIN_DESCRIPTION_TYPE = Domain.class.getName() + ".description";
     public static final String DOMAIN_CODE = "i18n.message";
 
+    private static final Log LOG = LogFactory.getLog(I18nDomainHolder.class);
+
     private ElasticsearchOperations esOperations;
-    private Domain messageDomain = null;
+
+    /**
+     * Current domain snapshot, {@code null} until the domain is loaded
+     */
+    private volatile DomainSnapshot snapshot = null;
+
+    /**
+     * Readiness signal, completed with the first domain snapshot
+     */
+    private final CompletableFuture<DomainSnapshot> readiness = new CompletableFuture<>();
+
+    /**
+     * Delay in milliseconds a request waits for the bootstrap, {@code 0} if the domain is loaded by the first request
+     */
+    private final long readyTimeoutMillis;
+
+    /**
+     * Executor bootstrapping and reloading the domain in the background,
+     * {@code null} if neither the bootstrap nor the reloads are in the background
+     */
+    private final ScheduledExecutorService executor;
 
     public I18nDomainHolder(ElasticsearchOperations esOperations) {
+        this(esOperations, 0, 0);
+    }
+
+    /**
+     * Constructor with background reload interval and ready timeout.
+     *
+     * @param esOperations         Elasticsearch operations
+     * @param reloadIntervalMillis Interval in milliseconds between background reloads, {@code 0} to disable them
+     * @param readyTimeoutMillis   Delay in milliseconds a request waits for the bootstrap started when the application is ready,
+     *                             {@code 0} to load the domain in the first request thread instead
+     */
+    public I18nDomainHolder(ElasticsearchOperations esOperations, long reloadIntervalMillis, long readyTimeoutMillis) {
+
         this.esOperations = esOperations;
+        this.readyTimeoutMillis = readyTimeoutMillis;
+
+        if (reloadIntervalMillis > 0 || readyTimeoutMillis > 0) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "i18n-domain-holder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        else
+            executor = null;
+
+        if (reloadIntervalMillis > 0)
+            executor.scheduleWithFixedDelay(this::reloadInBackground, reloadIntervalMillis, reloadIntervalMillis, TimeUnit.MILLISECONDS);
     }
 
     @Setter
@@ -40,51 +111,269 @@ public class I18nDomainHolder implements DomainHolder {
     @Setter
     protected Collection<String> domainAvailableLanguageTags = Collections.singleton("en");
 
+    /**
+     * Delay in milliseconds before a failed bootstrap is retried
+     */
+    @Setter
+    protected long bootstrapRetryDelayMillis = 5000;
+
+    /**
+     * Bootstrap the domain in the background when the application is ready, if there is a ready timeout.
+     *
+     * @param event The application ready event
+     */
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+
+        if (readyTimeoutMillis > 0)
+            executor.execute(this::bootstrap);
+    }
+
+    /**
+     * Indicate if the domain is loaded, so that requests are served without waiting.
+     *
+     * @return {@code true} if the domain is loaded
+     */
+    public boolean isReady() {
+        return readiness.isDone();
+    }
+
     /**
      * Get the internationalized domain of the application from the ES index.
      * If it doesn't exist, create the domain in the index.
      *
      * @return The found domain
+     * @throws I18nDomainNotReadyException If the bootstrap isn't over before the ready timeout
      */
     @Override
     public Domain getDomain() {
+        return getSnapshot().domain;
+    }
 
-        if (messageDomain != null)
-            return messageDomain;
+    /**
+     * Get the version of the held domain, incremented each time a reload changes it.
+     *
+     * @return The domain version
+     * @throws I18nDomainNotReadyException If the bootstrap isn't over before the ready timeout
+     */
+    @Override
+    public long getVersion() {
+        return getSnapshot().version;
+    }
 
-        loadI18nDomain();
+    /**
+     * Reload the internationalized domain of the application from the ES index.
+     * The current snapshot is kept if the domain is unchanged, or if it isn't found.
+     */
+    @Override
+    public synchronized void reload() {
+
+        final DomainSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+            loadI18nDomain();
+            return;
+        }
+
+        // Get the domain in realtime from its identifier, then from its code if it has been replaced
+        Domain domain = getI18nDomain(currentSnapshot.domain.getId());
+        if (domain == null)
+            domain = findI18nDomain();
 
-        return messageDomain;
+        // Publish a new snapshot if the domain has changed
+        if (domain != null && !domain.equals(currentSnapshot.domain))
+            snapshot = new DomainSnapshot(domain, currentSnapshot.version + 1);
     }
 
     /**
-     * Load the I18N domain.
+     * Stop bootstrapping and reloading the domain in the background.
+     * Requests waiting for a bootstrap that isn't over fail immediately.
      */
-    private synchronized void loadI18nDomain() {
+    public void shutdown() {
 
-        // Get the message domain
-        if (esOperations.indexExists(Domain.class))
-            messageDomain = esOperations.queryForObject(new CriteriaQuery(new Criteria("code").is(DOMAIN_CODE)), Domain.class);
+        if (executor != null)
+            executor.shutdownNow();
+
+        readiness.completeExceptionally(new IllegalStateException("The I18N domain holder is shut down."));
+    }
+
+    /**
+     * Get the current domain snapshot. If the domain isn't loaded yet, wait for the bootstrap if there is a ready timeout,
+     * or load it.
+     *
+     * @return The domain snapshot
+     * @throws I18nDomainNotReadyException If the bootstrap isn't over before the ready timeout, or won't be over since the holder is shut down
+     */
+    private DomainSnapshot getSnapshot() {
+
+        final DomainSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null)
+            return currentSnapshot;
+
+        if (readyTimeoutMillis <= 0)
+            return loadI18nDomain();
+
+        try {
+            return readiness.get(readyTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new I18nDomainNotReadyException(readyTimeoutMillis);
+        } catch (ExecutionException e) {
+            throw new I18nDomainNotReadyException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new I18nDomainNotReadyException(readyTimeoutMillis);
+        }
+    }
+
+    /**
+     * Load the domain in the background, and retry later if it fails.
+     */
+    private void bootstrap() {
+
+        try {
+            loadI18nDomain();
+        } catch (RuntimeException e) {
+            if (executor.isShutdown()) {
+                LOG.error("Failed to bootstrap the I18N domain, the holder is shut down", e);
+                return;
+            }
+
+            LOG.warn("Failed to bootstrap the I18N domain, retrying in " + bootstrapRetryDelayMillis + " ms", e);
+            executor.schedule(this::bootstrap, bootstrapRetryDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reload the domain in the background. The current snapshot is kept if the reload fails, so that failures
+     * don't stop next reloads.
+     */
+    private void reloadInBackground() {
+
+        try {
+            if (snapshot != null)
+                reload();
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to reload the I18N domain, the current one is kept until the next reload", e);
+        }
+    }
+
+    /**
+     * Load the I18N domain, unless another thread has loaded it, then signal that the domain is ready.
+     *
+     * @return The domain snapshot
+     */
+    private synchronized DomainSnapshot loadI18nDomain() {
+
+        if (snapshot != null)
+            return snapshot;
+
+        // Create the index if no other node has created it
+        createIndex();
+
+        // Get the message domain, in realtime from its derived identifier, then from its code if it was created with another identifier
+        final String messageDomainId = buildI18nDomainId();
+        Domain messageDomain = getI18nDomain(messageDomainId);
+        if (messageDomain == null)
+            messageDomain = findI18nDomain();
 
         // Index the message domain if it's unavailable in the ES index
         if (messageDomain == null) {
 
-            // Define domain and message mappings
+            // Define domain and message mappings, mappings equal to existing ones are left unchanged
             putDomainMapping();
             putMessageMapping();
 
-            // Insert the I18N domain
-            IndexQuery indexQuery = new IndexQuery();
-            indexQuery.setObject(new Domain(null, domainCode, DOMAIN_DESCRIPTION_TYPE, domainDefaultLanguageTag, domainAvailableLanguageTags));
-            String messageDomainId = esOperations.index(indexQuery);
+            // Insert the I18N domain, unless a node inserting it at the same time has created it first
+            insertI18nDomain(new Domain(messageDomainId, domainCode, DOMAIN_DESCRIPTION_TYPE, domainDefaultLanguageTag, domainAvailableLanguageTags));
+
+            // Get the inserted I18N domain, or the one created by another node
+            messageDomain = getI18nDomain(messageDomainId);
+        }
+
+        snapshot = new DomainSnapshot(messageDomain, 1);
+        readiness.complete(snapshot);
+
+        return snapshot;
+    }
+
+    /**
+     * Create the index of the Domain entity if it doesn't exist.
+     * Creation by another node at the same time is ignored.
+     */
+    private void createIndex() {
+
+        if (esOperations.indexExists(Domain.class))
+            return;
+
+        try {
+            esOperations.createIndex(Domain.class);
+        } catch (RuntimeException e) {
+            if (!esOperations.indexExists(Domain.class))
+                throw e;
+        }
+    }
+
+    /**
+     * Build the identifier of the I18N domain, derived from its code.
+     *
+     * @return The I18N domain identifier
+     */
+    private String buildI18nDomainId() {
+        return UUID.nameUUIDFromBytes(domainCode.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Get the I18N domain from its identifier.
+     *
+     * @param id The domain identifier
+     * @return The found domain, or {@code null} if it doesn't exist
+     */
+    private Domain getI18nDomain(final String id) {
+
+        GetQuery getQuery = new GetQuery();
+        getQuery.setId(id);
+
+        return esOperations.queryForObject(getQuery, Domain.class);
+    }
+
+    /**
+     * Create the I18N domain only if it doesn't exist, so that nodes starting at the same time
+     * don't overwrite the domain created by the first one.
+     *
+     * @param domain The I18N domain to create
+     */
+    private void insertI18nDomain(final Domain domain) {
+
+        final Document document = Domain.class.getDeclaredAnnotation(Document.class);
+        final String source;
+        try {
+            source = new DefaultResultMapper(esOperations.getElasticsearchConverter().getMappingContext()).getEntityMapper().mapToString(domain);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        try {
+            esOperations.getClient()
+                    .prepareIndex(document.indexName(), document.type(), domain.getId())
+                    .setSource(source)
+                    .setOpType(IndexRequest.OpType.CREATE)
+                    .get();
+        } catch (RuntimeException e) {
+            if (!(ExceptionsHelper.unwrapCause(e) instanceof DocumentAlreadyExistsException))
+                throw e;
 
-            // Get the inserted I18N domain
-            GetQuery getQuery = new GetQuery();
-            getQuery.setId(messageDomainId);
-            messageDomain = esOperations.queryForObject(getQuery, Domain.class);
+            LOG.info("The I18N domain has been created by another node");
         }
     }
 
+    /**
+     * Find the I18N domain from its code.
+     *
+     * @return The found domain, or {@code null} if it doesn't exist
+     */
+    private Domain findI18nDomain() {
+        return esOperations.queryForObject(new CriteriaQuery(new Criteria("code").is(domainCode)), Domain.class);
+    }
+
     /**
      * Define the mapping for the Domain entity.
      */
@@ -157,4 +446,33 @@ public class I18nDomainHolder implements DomainHolder {
 
         esOperations.putMapping(Domain.class, mapping);
     }
+
+
+    /**
+     * Immutable snapshot of the I18N domain with its version.
+     */
+    private static class DomainSnapshot {
+
+        /**
+         * The I18N domain
+         */
+        private final Domain domain;
+
+        /**
+         * Version of the snapshot
+         */
+        private final long version;
+
+        /**
+         * Constructor with domain and version.
+         *
+         * @param domain  The I18N domain
+         * @param version Version of the snapshot
+         */
+        private DomainSnapshot(final Domain domain, final long version) {
+
+            this.domain = domain;
+            this.version = version;
+        }
+    }
 }
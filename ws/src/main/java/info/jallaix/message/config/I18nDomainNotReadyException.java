@@ -0,0 +1,32 @@
+package info.jallaix.message.config;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.text.MessageFormat;
+
+/**
+ * This exception is thrown when the I18N domain isn't loaded before the ready timeout, or won't be loaded,
+ * so that the request may be retried later, possibly on another node.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class I18nDomainNotReadyException extends RuntimeException {
+
+    /**
+     * Constructor with ready timeout.
+     *
+     * @param readyTimeoutMillis Delay in milliseconds the request waited for the I18N domain
+     */
+    public I18nDomainNotReadyException(long readyTimeoutMillis) {
+        super(MessageFormat.format("The I18N domain isn''t ready after {0,number,#} ms.", readyTimeoutMillis));
+    }
+
+    /**
+     * Constructor with the reason why the I18N domain won't be loaded.
+     *
+     * @param cause The reason why the I18N domain won't be loaded
+     */
+    public I18nDomainNotReadyException(Throwable cause) {
+        super("The I18N domain won't be ready.", cause);
+    }
+}
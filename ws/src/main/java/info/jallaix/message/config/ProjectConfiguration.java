@@ -1,19 +1,18 @@
 package info.jallaix.message.config;
 
-import com.esotericsoftware.kryo.Kryo;
-import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import info.jallaix.message.dao.MessageIdMigration;
+import info.jallaix.message.dao.bundle.MessageBundleCache;
+import info.jallaix.message.dao.cache.EntityMessageCache;
+import info.jallaix.message.dao.interceptor.I18nMessageLocalizer;
+import info.jallaix.message.dao.interceptor.I18nMessagePropertiesHolder;
 import info.jallaix.message.dao.interceptor.ThreadLocaleHolder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-
 /**
  * Project configuration
  */
@@ -27,6 +26,57 @@ public class ProjectConfiguration {
     @Autowired
     private ElasticsearchOperations esOperations;
 
+    /**
+     * Interval in milliseconds between background reloads of the I18N domain, {@code 0} to disable them
+     */
+    @Value("${i18n.message.domain.reloadIntervalMillis:30000}")
+    private long i18nDomainReloadIntervalMillis;
+
+    /**
+     * Delay in milliseconds a request waits for the I18N domain bootstrapped when the application is ready,
+     * {@code 0} to load it in the first request thread instead
+     */
+    @Value("${i18n.message.domain.readyTimeoutMillis:10000}")
+    private long i18nDomainReadyTimeoutMillis;
+
+    /**
+     * Packages scanned at startup for entity classes having {@code @I18nMessage} properties
+     */
+    @Value("${i18n.message.entityPackages:info.jallaix.message}")
+    private String[] entityPackages;
+
+    /**
+     * Maximum number of entity messages held in the cache
+     */
+    @Value("${i18n.message.cache.maxSize:10000}")
+    private int entityMessageCacheMaxSize;
+
+    /**
+     * Delay in milliseconds after which a cached entity message expires
+     */
+    @Value("${i18n.message.cache.expireAfterWriteMillis:600000}")
+    private long entityMessageCacheExpireAfterWriteMillis;
+
+    /**
+     * Delay in milliseconds after which a cached missing entity message entry expires
+     */
+    @Value("${i18n.message.cache.missingExpireAfterWriteMillis:30000}")
+    private long entityMessageCacheMissingExpireAfterWriteMillis;
+
+    /**
+     * Maximum age in milliseconds of a message bundle snapshot before it's rebuilt
+     */
+    @Value("${i18n.message.bundle.maxAgeMillis:60000}")
+    private long messageBundleMaxAgeMillis;
+
+    /**
+     * Indicate if entity and key messages are rewritten to identifiers derived from their key when the application is ready.
+     * Messages with random identifiers can't be read by key, so it should be enabled once to migrate messages
+     * indexed before identifiers were derived. It's disabled by default, and runs once even when enabled.
+     */
+    @Value("${i18n.message.migrateMessageIds:false}")
+    private boolean migrateMessageIds;
+
     /**
      * Property resource configurer that resolves ${} in @Value annotations.
      *
@@ -39,12 +89,13 @@ public class ProjectConfiguration {
 
     /**
      * The i18n domain holder gives access to the domain data for the current application.
+     * The domain is bootstrapped when the application is ready.
      *
      * @return The i18n domain holder
      */
-    @Bean
+    @Bean(destroyMethod = "shutdown")
     public DomainHolder i18nDomainHolder() {
-        return new I18nDomainHolder(esOperations);
+        return new I18nDomainHolder(esOperations, i18nDomainReloadIntervalMillis, i18nDomainReadyTimeoutMillis);
     }
 
     /**
@@ -58,29 +109,62 @@ public class ProjectConfiguration {
     }
 
     /**
-     * Access to the serialization framework.
+     * This bean holds the properties annotated with {@code @I18nMessage} of the entity classes,
+     * found by a classpath scan at startup.
      *
-     * @return The access to the serialization framework
+     * @return The I18N message properties holder
      */
     @Bean
-    public Kryo kryo() {
-
-        Kryo kryo = new Kryo();
-        kryo.register(Arrays.asList().getClass(), new AsListCollectionSerializer());
+    public I18nMessagePropertiesHolder i18nMessagePropertiesHolder() {
+        return I18nMessagePropertiesHolder.scan(entityPackages);
+    }
 
-        return kryo;
+    /**
+     * This bean localizes the properties annotated with {@code @I18nMessage} of any entity.
+     *
+     * @return The I18N message localizer
+     */
+    @Bean
+    public I18nMessageLocalizer i18nMessageLocalizer() {
+        return new I18nMessageLocalizer(
+                esOperations,
+                i18nDomainHolder(),
+                threadLocaleHolder(),
+                i18nMessagePropertiesHolder(),
+                entityMessageCache());
     }
 
-    public class AsListCollectionSerializer extends CollectionSerializer {
+    /**
+     * This bean caches entity messages read from or written to the message index, and the ones known to be missing.
+     *
+     * @return The entity message cache
+     */
+    @Bean
+    public EntityMessageCache entityMessageCache() {
+        return new EntityMessageCache(
+                entityMessageCacheMaxSize,
+                entityMessageCacheExpireAfterWriteMillis,
+                entityMessageCacheMissingExpireAfterWriteMillis);
+    }
 
-        @Override
-        protected Collection create(Kryo kryo, Input input, Class<Collection> type) {
-            return new ArrayList();
-        }
+    /**
+     * This bean caches a snapshot of each domain's key messages, used to resolve message bundles.
+     *
+     * @return The message bundle cache
+     */
+    @Bean(destroyMethod = "shutdown")
+    public MessageBundleCache messageBundleCache() {
+        return new MessageBundleCache(messageBundleMaxAgeMillis);
+    }
 
-        @Override
-        public Collection createCopy (Kryo kryo, Collection original) {
-            return new ArrayList();
-        }
+    /**
+     * This bean rewrites entity and key messages with random identifiers to identifiers derived from their key.
+     * It only runs if enabled with the {@code i18n.message.migrateMessageIds} property, and only once across nodes.
+     *
+     * @return The message identifier migration
+     */
+    @Bean
+    public MessageIdMigration messageIdMigration() {
+        return new MessageIdMigration(esOperations, migrateMessageIds, entityMessageCache());
     }
 }
@@ -0,0 +1,68 @@
+package info.jallaix.message.dao;
+
+import org.elasticsearch.action.ActionListener;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * <p>Future completed by the response of an asynchronous Elasticsearch request.</p>
+ * <p>The future is passed as listener to the {@code execute} method of a request builder, so that no thread waits
+ * for the response. It's completed by an Elasticsearch thread, dependent stages must then neither block
+ * nor run long tasks.</p>
+ *
+ * @param <T> Type of the response
+ */
+public class ActionListenerFuture<T> extends CompletableFuture<T> implements ActionListener<T> {
+
+    /**
+     * Complete the future with the response.
+     *
+     * @param response The response
+     */
+    @Override
+    public void onResponse(T response) {
+        complete(response);
+    }
+
+    /**
+     * Complete the future with the request failure.
+     *
+     * @param e The failure
+     */
+    @Override
+    public void onFailure(Throwable e) {
+        completeExceptionally(e);
+    }
+
+
+    /**
+     * Build a future completed with a failure.
+     *
+     * @param e   The failure
+     * @param <T> Type of the expected result
+     * @return The failed future
+     */
+    public static <T> CompletableFuture<T> failed(final Throwable e) {
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * Wait for the result of a future, and throw its failure as is if it's a runtime exception.
+     *
+     * @param future The future
+     * @param <T>    Type of the result
+     * @return The result
+     */
+    public static <T> T await(final CompletableFuture<T> future) {
+
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+        }
+    }
+}
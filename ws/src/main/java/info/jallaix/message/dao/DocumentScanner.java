@@ -0,0 +1,152 @@
+package info.jallaix.message.dao;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.ResultsMapper;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * <p>Scanner of all the documents matching a query, page by page with the scan and scroll API.</p>
+ * <p>A single page of documents is held in memory at a time, so that the memory used doesn't depend
+ * on the number of documents, and the documents aren't limited by the search window of a single request.</p>
+ * <p>Documents may also be scrolled without blocking the calling thread, when the number of documents is bounded
+ * but may exceed the search window.</p>
+ */
+public final class DocumentScanner {
+
+    /**
+     * Number of documents read per request
+     */
+    private static final int SCAN_PAGE_SIZE = 500;
+
+    /**
+     * Delay in milliseconds during which a scroll context is kept alive between two requests
+     */
+    private static final long SCROLL_TIME_MILLIS = 60000;
+
+
+    /**
+     * Utility class
+     */
+    private DocumentScanner() {
+    }
+
+    /**
+     * Pass each document matching a query to an action, in no particular order.
+     * The scroll context is released once the documents are read, or if the action fails.
+     *
+     * @param operations    Elasticsearch operations
+     * @param query         The query the documents must match
+     * @param documentClass Class of the documents, annotated with {@link Document}
+     * @param action        The action to perform on each document
+     * @param <T>           Type of the documents
+     */
+    public static <T> void scan(final ElasticsearchOperations operations,
+                         final QueryBuilder query,
+                         final Class<T> documentClass,
+                         final Consumer<? super T> action) {
+
+        final Document document = documentClass.getDeclaredAnnotation(Document.class);
+        final String scrollId = operations.scan(
+                new NativeSearchQueryBuilder()
+                        .withQuery(query)
+                        .withIndices(document.indexName())
+                        .withTypes(document.type())
+                        .withPageable(new PageRequest(0, SCAN_PAGE_SIZE))
+                        .build(),
+                SCROLL_TIME_MILLIS,
+                false);
+
+        try {
+            Page<T> page = operations.scroll(scrollId, SCROLL_TIME_MILLIS, documentClass);
+            while (page.hasContent()) {
+                page.getContent().forEach(action);
+                page = operations.scroll(scrollId, SCROLL_TIME_MILLIS, documentClass);
+            }
+        } finally {
+
+            // Don't keep the scroll context alive until it expires
+            operations.getClient()
+                    .prepareClearScroll()
+                    .addScrollId(scrollId)
+                    .get();
+        }
+    }
+
+    /**
+     * Find all the documents matching a query without blocking the calling thread, scrolling page by page
+     * so that the documents aren't limited by the search window of a single request.
+     * The scroll context is released once the documents are read.
+     *
+     * @param operations    Elasticsearch operations
+     * @param resultsMapper Mapper of the search responses to documents
+     * @param query         The query the documents must match
+     * @param documentClass Class of the documents, annotated with {@link Document}
+     * @param <T>           Type of the documents
+     * @return The future documents, in no particular order
+     */
+    public static <T> CompletableFuture<List<T>> scanAsync(final ElasticsearchOperations operations,
+                                                           final ResultsMapper resultsMapper,
+                                                           final QueryBuilder query,
+                                                           final Class<T> documentClass) {
+
+        final Document document = documentClass.getDeclaredAnnotation(Document.class);
+        final ActionListenerFuture<SearchResponse> searchFuture = new ActionListenerFuture<>();
+        operations.getClient()
+                .prepareSearch(document.indexName())
+                .setTypes(document.type())
+                .setQuery(query)
+                .setSize(SCAN_PAGE_SIZE)
+                .setScroll(TimeValue.timeValueMillis(SCROLL_TIME_MILLIS))
+                .execute(searchFuture);
+
+        return searchFuture.thenCompose(response -> scrollAsync(operations, resultsMapper, documentClass, response, new ArrayList<>()));
+    }
+
+    /**
+     * Collect the documents of a search response, and request the next page until all documents are read.
+     *
+     * @param operations    Elasticsearch operations
+     * @param resultsMapper Mapper of the search responses to documents
+     * @param documentClass Class of the documents
+     * @param response      The search response of the current page
+     * @param documents     The documents collected from the previous pages
+     * @param <T>           Type of the documents
+     * @return The future documents of all pages
+     */
+    private static <T> CompletableFuture<List<T>> scrollAsync(final ElasticsearchOperations operations,
+                                                              final ResultsMapper resultsMapper,
+                                                              final Class<T> documentClass,
+                                                              final SearchResponse response,
+                                                              final List<T> documents) {
+
+        documents.addAll(resultsMapper.mapResults(response, documentClass, null).getContent());
+
+        // Last page, the scroll context is released without waiting for the response
+        if (response.getHits().getHits().length == 0 || documents.size() >= response.getHits().getTotalHits()) {
+            operations.getClient()
+                    .prepareClearScroll()
+                    .addScrollId(response.getScrollId())
+                    .execute();
+            return CompletableFuture.completedFuture(documents);
+        }
+
+        final ActionListenerFuture<SearchResponse> scrollFuture = new ActionListenerFuture<>();
+        operations.getClient()
+                .prepareSearchScroll(response.getScrollId())
+                .setScroll(TimeValue.timeValueMillis(SCROLL_TIME_MILLIS))
+                .execute(scrollFuture);
+
+        return scrollFuture.thenCompose(nextResponse -> scrollAsync(operations, resultsMapper, documentClass, nextResponse, documents));
+    }
+}
@@ -1,6 +1,10 @@
 package info.jallaix.message.dao;
 
 import info.jallaix.message.bean.Domain;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
 /**
  * This interface manages all custom datasource accesses related to a domain.
@@ -14,4 +18,107 @@ public interface DomainDaoCustom {
      * @return The domain found
      */
     Domain findByCode(String code);
+
+    /**
+     * Find a domain by identifier, without reading nor localizing its description.
+     *
+     * @param id The domain identifier
+     * @return The domain found, with the persisted description instead of the localized one, or {@code null} if the domain doesn't exist
+     */
+    Domain findOneWithoutDescription(String id);
+
+    /**
+     * <p>Find the entity tag of a domain localized for the output locales, without reading nor localizing the domain.</p>
+     * <p>The entity tag changes whenever the domain document, the selected description message
+     * or the output content language changes.</p>
+     *
+     * @param id The domain identifier
+     * @return The entity tag, or {@code null} if the domain doesn't exist or the output locales can't be bounded
+     */
+    String findEntityTag(String id);
+
+
+    /**
+     * Create a domain with a single conditional write, that fails if the domain already exists.
+     *
+     * @param domain The domain to create
+     * @return The domain created
+     * @throws org.springframework.dao.DataIntegrityViolationException If the domain already exists
+     */
+    Domain create(Domain domain);
+
+    /**
+     * Update a domain with a single conditional write, that fails if the domain doesn't exist.
+     *
+     * @param domain The domain to update
+     * @return The domain updated, or {@code null} if the domain doesn't exist
+     */
+    Domain update(Domain domain);
+
+    /**
+     * Update a domain on condition that its entity tag matches an {@code If-Match} header, see {@link #findEntityTag(String)}.
+     * The domain is written on condition that its version didn't change since the entity tag was checked.
+     *
+     * @param domain  The domain to update
+     * @param ifMatch The {@code If-Match} header, {@code null} for an unconditional update
+     * @return The domain updated, or {@code null} if the domain doesn't exist
+     * @throws EntityTagMismatchException If the entity tag doesn't match, or if the domain is modified concurrently
+     */
+    Domain update(Domain domain, String ifMatch);
+
+    /**
+     * Delete a domain and its description messages on condition that its entity tag matches an {@code If-Match} header,
+     * see {@link #findEntityTag(String)}. The domain is deleted on condition that its version didn't change
+     * since the entity tag was checked.
+     *
+     * @param id      The domain identifier
+     * @param ifMatch The {@code If-Match} header, {@code null} for an unconditional delete
+     * @return {@code true} if the domain is deleted, {@code false} if it doesn't exist
+     * @throws EntityTagMismatchException If the entity tag doesn't match, or if the domain is modified concurrently
+     */
+    boolean delete(String id, String ifMatch);
+
+    /**
+     * <p>Find a domain by identifier without blocking the calling thread.</p>
+     * <p>The domain and its description messages are fetched concurrently, since message identifiers are derived
+     * from the domain identifier. The output locales are captured by the calling thread.</p>
+     *
+     * @param id The domain identifier
+     * @return The future domain found, completed with {@code null} if the domain doesn't exist
+     */
+    CompletableFuture<Domain> findOneAsync(String id);
+
+    /**
+     * <p>Find a domain by a code without blocking the calling thread.</p>
+     * <p>The description messages are fetched once the domain is found. The output locales are captured by the calling thread.</p>
+     *
+     * @param code The domain code
+     * @return The future domain found, completed with {@code null} if the domain doesn't exist
+     */
+    CompletableFuture<Domain> findByCodeAsync(String code);
+
+    /**
+     * Find the entity tag of a domain without blocking the calling thread, see {@link #findEntityTag(String)}.
+     * The output locales are captured by the calling thread.
+     *
+     * @param id The domain identifier
+     * @return The future entity tag, completed with {@code null} if the domain doesn't exist or the output locales can't be bounded
+     */
+    CompletableFuture<String> findEntityTagAsync(String id);
+
+    /**
+     * <p>Find a domain by identifier with its entity tag, without blocking the calling thread.</p>
+     * <p>Both are derived from the same reads, so that the entity tag always matches the domain.
+     * The output locales are captured by the calling thread.</p>
+     * <p>If the client already holds the representation of the current entity tag, the domain is neither read
+     * nor localized.</p>
+     *
+     * @param id          The domain identifier
+     * @param notModified Predicate telling if the client holds the representation of an entity tag,
+     *                    {@code null} if the client holds no representation
+     * @return The future domain and entity tag, completed with {@code null} if the domain doesn't exist.
+     * The entity tag is {@code null} if the output locales can't be bounded.
+     * The domain is {@code null} if the client holds the representation of the entity tag.
+     */
+    CompletableFuture<Pair<Domain, String>> findOneWithEntityTagAsync(String id, Predicate<String> notModified);
 }
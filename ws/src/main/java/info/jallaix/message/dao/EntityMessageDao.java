@@ -6,7 +6,9 @@ import org.springframework.data.elasticsearch.repository.ElasticsearchRepository
 import java.util.Collection;
 
 /**
- * This interface manages all datasource accesses related to a message.
+ * <p>This interface manages all datasource accesses related to a message.</p>
+ * <p>Its REST endpoints don't support conditional requests: responses carry no ETag and {@code If-Match} headers
+ * are ignored.</p>
  */
 public interface EntityMessageDao extends ElasticsearchRepository<EntityMessage, String>, EntityMessageDaoCustom {
 
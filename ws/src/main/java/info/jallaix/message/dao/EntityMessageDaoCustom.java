@@ -2,6 +2,8 @@ package info.jallaix.message.dao;
 
 import info.jallaix.message.bean.EntityMessage;
 
+import java.util.function.Consumer;
+
 /**
  * This interface manages custom datasource accesses related to a domain.
  */
@@ -31,4 +33,15 @@ public interface EntityMessageDaoCustom {
      */
     @SuppressWarnings("unused")
     Iterable<EntityMessage> findByContent(final String domainId, final String type, final String languageTag, final String content);
+
+    /**
+     * <p>Pass each message of a domain to an action, in no particular order.</p>
+     * <p>Messages are read page by page with a scroll, so that the memory used doesn't depend on the domain size.
+     * Unlike {@code findByDomainId}, all the messages are read whatever the search window.</p>
+     *
+     * @param domainId The domain identifier the messages must match
+     * @param action   The action to perform on each message
+     */
+    @SuppressWarnings("unused")
+    void forEachByDomainId(final String domainId, final Consumer<? super EntityMessage> action);
 }
@@ -0,0 +1,24 @@
+package info.jallaix.message.dao;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.text.MessageFormat;
+
+/**
+ * This exception is thrown when a conditional update or delete is requested for an entity tag that doesn't match
+ * the current one, or when the entity changes while being written.
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class EntityTagMismatchException extends RuntimeException {
+
+    /**
+     * Constructor with entity identifier.
+     *
+     * @param entityId Identifier of the entity to write
+     * @param cause    The write conflict, {@code null} if the entity tag doesn't match before writing
+     */
+    public EntityTagMismatchException(String entityId, Throwable cause) {
+        super(MessageFormat.format("The entity {0} doesn''t match the expected entity tag.", entityId), cause);
+    }
+}
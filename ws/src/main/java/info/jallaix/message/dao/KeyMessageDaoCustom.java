@@ -1,6 +1,12 @@
 package info.jallaix.message.dao;
 
+import info.jallaix.message.bean.Domain;
 import info.jallaix.message.bean.KeyMessage;
+import info.jallaix.message.dao.bundle.MessageBundle;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  * This interface manages custom datasource accesses related to a domain.
@@ -18,6 +24,30 @@ public interface KeyMessageDaoCustom {
     @SuppressWarnings("unused")
     KeyMessage findOne(final String domainId, final String key, final String languageTag);
 
+    /**
+     * Find the messages for a set of keys.
+     *
+     * @param domainId    Domain identifier to filter messages
+     * @param keys        Message keys
+     * @param languageTag Language tag to filter messages
+     * @return The matched messages, in the order of the keys, without the missing ones
+     */
+    @SuppressWarnings("unused")
+    Iterable<KeyMessage> findAll(final String domainId, final Iterable<String> keys, final String languageTag);
+
+    /**
+     * <p>Find the message bundle of a domain: every key of the domain resolved to its best matching message content.</p>
+     * <p>The message language tag of a key is selected with {@link Locale#lookup(List, java.util.Collection)}
+     * among the language tags available for this key, or is the domain's default language tag if none matches.
+     * Keys that have no message for the selected language tag are not part of the bundle.</p>
+     *
+     * @param domain         Domain of the messages
+     * @param languageRanges Language ranges used to select message language tags
+     * @return The resolved message bundle
+     */
+    @SuppressWarnings("unused")
+    MessageBundle findBundle(final Domain domain, final List<Locale.LanguageRange> languageRanges);
+
     /**
      * <p>Find messages with content matching the provided one.</p>
      * <p>The results may be filtered by domain identifier and language tag.</p>
@@ -29,4 +59,15 @@ public interface KeyMessageDaoCustom {
      */
     @SuppressWarnings("unused")
     Iterable<KeyMessage> findByContent(final String domainId, final String languageTag, final String content);
+
+    /**
+     * <p>Pass each message of a domain to an action, in no particular order.</p>
+     * <p>Messages are read page by page with a scroll, so that the memory used doesn't depend on the domain size.
+     * Unlike {@code findByDomainId}, all the messages are read whatever the search window.</p>
+     *
+     * @param domainId The domain identifier the messages must match
+     * @param action   The action to perform on each message
+     */
+    @SuppressWarnings("unused")
+    void forEachByDomainId(final String domainId, final Consumer<? super KeyMessage> action);
 }
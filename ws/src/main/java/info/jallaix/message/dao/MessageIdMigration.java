@@ -0,0 +1,310 @@
+package info.jallaix.message.dao;
+
+import info.jallaix.message.bean.EntityMessage;
+import info.jallaix.message.bean.KeyMessage;
+import info.jallaix.message.dao.cache.EntityMessageCache;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.elasticsearch.ElasticsearchException;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.DefaultResultMapper;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * <p>Migration that rewrites the existing messages to identifiers derived from their key,
+ * see {@link EntityMessage#buildId(String, String, String, String)} and {@link KeyMessage#buildId(String, String, String)}.</p>
+ * <p>Messages indexed before the derived identifiers were introduced have random identifiers, and can't be read
+ * by key until they are migrated. Each of them is created again with its derived identifier, then its random identifier
+ * is deleted. A message created under its derived identifier since the migration started is never overwritten:
+ * it's more recent than the migrated one, which is only deleted.</p>
+ * <p>The entity message cache is cleared once messages are rewritten, as it may remember migrated messages as missing.</p>
+ * <p>Messages that already have a derived identifier are left unchanged, so running the migration twice is harmless.
+ * A message that can't be rewritten keeps its random identifier and fails the migration.</p>
+ * <p>The migration is a one-shot task: when enabled, it's claimed by creating a marker document in the message index,
+ * so that a single node runs it once, even if several nodes start together. A failed migration is logged
+ * and releases its claim, so that it runs again at next startup. The marker can be deleted to run it again.</p>
+ */
+public class MessageIdMigration implements ApplicationListener<ApplicationReadyEvent> {
+
+    /**
+     * Logger
+     */
+    private static final Log LOG = LogFactory.getLog(MessageIdMigration.class);
+
+    /**
+     * Type of the marker document claiming the migration
+     */
+    static final String MARKER_TYPE = "migration";
+
+    /**
+     * Identifier of the marker document claiming the migration
+     */
+    static final String MARKER_ID = "messageIds";
+
+    /**
+     * Number of messages written per request
+     */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Elasticsearch operations
+     */
+    private final ElasticsearchOperations esOperations;
+
+    /**
+     * Indicate if the migration runs when the application is ready
+     */
+    private final boolean enabled;
+
+    /**
+     * Cache of entity messages, {@code null} if messages aren't cached
+     */
+    private final EntityMessageCache cache;
+
+    /**
+     * Mapper of messages to their source
+     */
+    private final EntityMapper entityMapper;
+
+    /**
+     * Constructor
+     *
+     * @param esOperations Elasticsearch operations
+     * @param enabled      Indicate if the migration runs when the application is ready
+     * @param cache        Cache of entity messages, {@code null} if messages aren't cached
+     */
+    public MessageIdMigration(final ElasticsearchOperations esOperations, final boolean enabled, final EntityMessageCache cache) {
+        this.esOperations = esOperations;
+        this.enabled = enabled;
+        this.cache = cache;
+        this.entityMapper = new DefaultResultMapper(esOperations.getElasticsearchConverter().getMappingContext()).getEntityMapper();
+    }
+
+    /**
+     * Run the migration when the application is ready, if it's enabled and it hasn't been claimed yet.
+     *
+     * @param event The application ready event
+     */
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+
+        if (!enabled || !esOperations.indexExists(EntityMessage.class))
+            return;
+
+        // Claim the migration, so that it runs once
+        if (!claim()) {
+            LOG.info("The message identifiers migration has already been run, delete the marker document to run it again");
+            return;
+        }
+
+        try {
+            LOG.info("Migrated the identifiers of " + migrate() + " messages");
+        } catch (RuntimeException e) {
+            release();
+            LOG.error("Failed to migrate the message identifiers, the migration will run again at next startup", e);
+        }
+    }
+
+    /**
+     * Rewrite the entity and key messages whose identifier isn't derived from their key.
+     *
+     * @return The number of rewritten messages
+     * @throws ElasticsearchException If some messages can't be rewritten, after the other ones are rewritten
+     */
+    public long migrate() {
+
+        final Map<String, String> failedDocuments = new LinkedHashMap<>();
+
+        final long entityMessageCount = migrate(
+                EntityMessage.class,
+                EntityMessage::getId,
+                EntityMessage::setId,
+                message -> EntityMessage.buildId(message.getDomainId(), message.getType(), message.getEntityId(), message.getLanguageTag()),
+                failedDocuments);
+
+        final long keyMessageCount = migrate(
+                KeyMessage.class,
+                KeyMessage::getId,
+                KeyMessage::setId,
+                message -> KeyMessage.buildId(message.getDomainId(), message.getKey(), message.getLanguageTag()),
+                failedDocuments);
+
+        if (cache != null && entityMessageCount > 0)
+            cache.clear();
+
+        if (!failedDocuments.isEmpty())
+            throw new ElasticsearchException("Failed to migrate the identifiers of " + failedDocuments.size() + " messages", failedDocuments);
+
+        return entityMessageCount + keyMessageCount;
+    }
+
+    /**
+     * Claim the migration by creating its marker document.
+     *
+     * @return {@code true} if the migration is claimed, {@code false} if it's already claimed
+     */
+    private boolean claim() {
+
+        final Document document = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        try {
+            esOperations.getClient()
+                    .prepareIndex(document.indexName(), MARKER_TYPE, MARKER_ID)
+                    .setSource("{\"startedAt\":" + System.currentTimeMillis() + "}")
+                    .setOpType(IndexRequest.OpType.CREATE)
+                    .get();
+            return true;
+        } catch (RuntimeException e) {
+            if (ExceptionsHelper.unwrapCause(e) instanceof DocumentAlreadyExistsException)
+                return false;
+            throw e;
+        }
+    }
+
+    /**
+     * Release the claim of the migration by deleting its marker document.
+     */
+    private void release() {
+
+        final Document document = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        esOperations.getClient().prepareDelete(document.indexName(), MARKER_TYPE, MARKER_ID).get();
+    }
+
+    /**
+     * Rewrite the messages of a type whose identifier isn't derived from their key.
+     *
+     * @param messageClass    The message class
+     * @param idGetter        Function getting the identifier of a message
+     * @param idSetter        Function setting the identifier of a message
+     * @param idBuilder       Function deriving the identifier of a message from its key
+     * @param failedDocuments Error messages of the messages that failed to be rewritten, by former identifier
+     * @param <T>             Message type
+     * @return The number of rewritten messages
+     */
+    private <T> long migrate(final Class<T> messageClass,
+                             final Function<T, String> idGetter,
+                             final BiConsumer<T, String> idSetter,
+                             final Function<T, String> idBuilder,
+                             final Map<String, String> failedDocuments) {
+
+        final Document document = messageClass.getDeclaredAnnotation(Document.class);
+
+        // Scan all messages, the scroll isn't affected by the messages written while scrolling
+        final List<T> batch = new ArrayList<>(BATCH_SIZE);
+        final long[] migratedCount = {0};
+        DocumentScanner.scan(esOperations, QueryBuilders.matchAllQuery(), messageClass, message -> {
+
+            if (idBuilder.apply(message).equals(idGetter.apply(message)))
+                return;
+
+            batch.add(message);
+            if (batch.size() == BATCH_SIZE) {
+                migratedCount[0] += migrate(document, batch, idGetter, idSetter, idBuilder, failedDocuments);
+                batch.clear();
+            }
+        });
+        if (!batch.isEmpty())
+            migratedCount[0] += migrate(document, batch, idGetter, idSetter, idBuilder, failedDocuments);
+
+        esOperations.refresh(document.indexName(), true);
+
+        return migratedCount[0];
+    }
+
+    /**
+     * Rewrite a batch of messages with random identifiers.
+     * Each message is created under its derived identifier, unless a message already exists under this identifier.
+     * Then the messages are deleted under their former identifier, except the ones that failed to be created.
+     *
+     * @param document        Document annotation of the message class
+     * @param messages        The messages to rewrite
+     * @param idGetter        Function getting the identifier of a message
+     * @param idSetter        Function setting the identifier of a message
+     * @param idBuilder       Function deriving the identifier of a message from its key
+     * @param failedDocuments Error messages of the messages that failed to be rewritten, by former identifier
+     * @param <T>             Message type
+     * @return The number of rewritten messages
+     */
+    private <T> long migrate(final Document document,
+                             final List<T> messages,
+                             final Function<T, String> idGetter,
+                             final BiConsumer<T, String> idSetter,
+                             final Function<T, String> idBuilder,
+                             final Map<String, String> failedDocuments) {
+
+        final Client client = esOperations.getClient();
+
+        // Create the messages under their derived identifier
+        final List<String> formerIds = new ArrayList<>(messages.size());
+        final BulkRequestBuilder createRequest = client.prepareBulk();
+        for (T message : messages) {
+
+            formerIds.add(idGetter.apply(message));
+            idSetter.accept(message, idBuilder.apply(message));
+
+            createRequest.add(client
+                    .prepareIndex(document.indexName(), document.type(), idGetter.apply(message))
+                    .setSource(toSource(message, idGetter))
+                    .setOpType(IndexRequest.OpType.CREATE));
+        }
+        final BulkResponse createResponse = createRequest.get();
+
+        // A message already created under its derived identifier is more recent, the migrated one is obsolete
+        final List<String> obsoleteIds = new ArrayList<>(messages.size());
+        for (BulkItemResponse item : createResponse.getItems()) {
+
+            final String formerId = formerIds.get(item.getItemId());
+            if (!item.isFailed() || item.getFailure().getStatus() == RestStatus.CONFLICT)
+                obsoleteIds.add(formerId);
+            else
+                failedDocuments.put(formerId, item.getFailureMessage());
+        }
+        if (obsoleteIds.isEmpty())
+            return 0;
+
+        // Delete the messages under their former identifier
+        final BulkRequestBuilder deleteRequest = client.prepareBulk();
+        obsoleteIds.forEach(id -> deleteRequest.add(client.prepareDelete(document.indexName(), document.type(), id)));
+        for (BulkItemResponse item : deleteRequest.get().getItems())
+            if (item.isFailed())
+                failedDocuments.put(item.getId(), item.getFailureMessage());
+
+        return obsoleteIds.size();
+    }
+
+    /**
+     * Map a message to its source, the same way the Elasticsearch operations do.
+     *
+     * @param message  The message
+     * @param idGetter Function getting the identifier of a message
+     * @param <T>      Message type
+     * @return The message source
+     */
+    private <T> String toSource(final T message, final Function<T, String> idGetter) {
+
+        try {
+            return entityMapper.mapToString(message);
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to map the message [id: " + idGetter.apply(message) + "]", e);
+        }
+    }
+}
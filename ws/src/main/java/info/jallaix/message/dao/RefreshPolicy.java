@@ -0,0 +1,23 @@
+package info.jallaix.message.dao;
+
+/**
+ * This enumeration defines when the message index is refreshed after domains and messages are written,
+ * making them available for search.
+ */
+public enum RefreshPolicy {
+
+    /**
+     * Refresh the index after each message write
+     */
+    IMMEDIATE,
+
+    /**
+     * Refresh the index once at the end of a save operation, whatever the number of saved domains
+     */
+    DEFERRED,
+
+    /**
+     * Never refresh the index explicitly, rely on the index refresh interval
+     */
+    NONE
+}
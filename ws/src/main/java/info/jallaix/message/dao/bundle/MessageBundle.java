@@ -0,0 +1,53 @@
+package info.jallaix.message.dao.bundle;
+
+import lombok.Value;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * <p>Message bundle of a domain resolved for a list of language ranges: each key is mapped to its best matching
+ * message content.</p>
+ * <p>A bundle is immutable, so that it may be shared by concurrent requests.
+ * Its entity tag is computed once from its contents.</p>
+ */
+@Value
+public class MessageBundle {
+
+    /**
+     * Message contents mapped by keys, sorted by keys
+     */
+    private final Map<String, String> contents;
+
+    /**
+     * Entity tag computed from the message contents
+     */
+    private final String entityTag;
+
+
+    /**
+     * Constructor with message contents.
+     *
+     * @param contents Unmodifiable message contents mapped by keys, sorted by keys
+     */
+    public MessageBundle(final Map<String, String> contents) {
+
+        this.contents = contents;
+        this.entityTag = computeEntityTag(contents);
+    }
+
+    /**
+     * Compute an entity tag from message contents.
+     *
+     * @param contents The message contents mapped by keys, sorted by keys
+     * @return The entity tag
+     */
+    private static String computeEntityTag(final Map<String, String> contents) {
+
+        final StringBuilder builder = new StringBuilder();
+        contents.forEach((key, content) -> builder.append(key).append('\u0000').append(content).append('\u0000'));
+
+        return "\"" + DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
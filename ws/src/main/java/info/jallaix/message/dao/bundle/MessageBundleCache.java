@@ -0,0 +1,155 @@
+package info.jallaix.message.dao.bundle;
+
+import info.jallaix.message.bean.Domain;
+import info.jallaix.message.bean.KeyMessage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * <p>In-memory cache of message bundle snapshots, one per domain, see {@link MessageBundleSnapshot}.</p>
+ * <p>Reads are lock-free: the current snapshot of a domain is published through an atomic reference.
+ * The first read of a domain builds its snapshot synchronously. Afterwards, a snapshot that is invalidated by a write
+ * or older than the maximum age keeps being served while a new one is built in the background,
+ * then the new snapshot replaces it with an atomic swap.</p>
+ */
+public class MessageBundleCache {
+
+    /**
+     * Maximum age in nanoseconds of a snapshot before it's rebuilt, so that writes from other nodes are eventually read
+     */
+    private final long maxAgeNanos;
+
+    /**
+     * Snapshot holders by domain identifiers
+     */
+    private final Map<String, SnapshotHolder> holders = new ConcurrentHashMap<>();
+
+    /**
+     * Executor building snapshots in the background
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "message-bundle-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    /**
+     * Constructor with age limit.
+     *
+     * @param maxAgeMillis Maximum age in milliseconds of a snapshot before it's rebuilt
+     */
+    public MessageBundleCache(final long maxAgeMillis) {
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    }
+
+
+    /**
+     * Get the bundle of a domain resolved for language ranges.
+     *
+     * @param domain         Domain of the messages
+     * @param languageRanges Language ranges used to select message language tags
+     * @param loader         Function loading all key messages of a domain from its identifier
+     * @return The resolved bundle
+     */
+    public MessageBundle get(final Domain domain,
+                             final List<Locale.LanguageRange> languageRanges,
+                             final Function<String, Collection<KeyMessage>> loader) {
+
+        final SnapshotHolder holder = holders.computeIfAbsent(domain.getId(), domainId -> new SnapshotHolder());
+        MessageBundleSnapshot snapshot = holder.snapshot.get();
+
+        // Build the snapshot synchronously if there is none yet, or if the domain's default language changed
+        if (snapshot == null || !snapshot.getDefaultLanguageTag().equals(domain.getDefaultLanguageTag())) {
+            holder.stale.set(false);
+            snapshot = new MessageBundleSnapshot(loader.apply(domain.getId()), domain.getDefaultLanguageTag());
+            holder.snapshot.set(snapshot);
+        }
+
+        // Rebuild an invalidated or expired snapshot in the background, unless a rebuild is in progress
+        else if ((holder.stale.get() || snapshot.getAgeNanos() > maxAgeNanos) && holder.rebuilding.compareAndSet(false, true)) {
+            holder.stale.set(false);
+            try {
+                executor.execute(() -> {
+                    try {
+                        holder.snapshot.set(new MessageBundleSnapshot(loader.apply(domain.getId()), domain.getDefaultLanguageTag()));
+                    } catch (RuntimeException e) {
+                        holder.stale.set(true);
+                    } finally {
+                        holder.rebuilding.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                holder.stale.set(true);
+                holder.rebuilding.set(false);
+            }
+        }
+
+        return snapshot.resolve(languageRanges);
+    }
+
+    /**
+     * Mark the snapshot of a domain as stale, so that it's rebuilt on next read.
+     *
+     * @param domainId The domain identifier
+     */
+    public void invalidate(final String domainId) {
+
+        final SnapshotHolder holder = holders.get(domainId);
+        if (holder != null)
+            holder.stale.set(true);
+    }
+
+    /**
+     * Mark the snapshots of all domains as stale, so that they're rebuilt on next read.
+     */
+    public void invalidateAll() {
+        holders.values().forEach(holder -> holder.stale.set(true));
+    }
+
+    /**
+     * Remove all snapshots, so that they're built synchronously on next read.
+     */
+    public void clear() {
+        holders.clear();
+    }
+
+    /**
+     * Stop building snapshots in the background.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+
+    /**
+     * Holder of the current snapshot of a domain.
+     */
+    private static class SnapshotHolder {
+
+        /**
+         * Current snapshot
+         */
+        private final AtomicReference<MessageBundleSnapshot> snapshot = new AtomicReference<>();
+
+        /**
+         * Indicate if the snapshot must be rebuilt
+         */
+        private final AtomicBoolean stale = new AtomicBoolean();
+
+        /**
+         * Indicate if the snapshot is being rebuilt
+         */
+        private final AtomicBoolean rebuilding = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,209 @@
+package info.jallaix.message.dao.bundle;
+
+import info.jallaix.message.bean.KeyMessage;
+import info.jallaix.message.dao.interceptor.Locales;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Immutable snapshot of all key messages of a domain, precompiled for bundle resolution.</p>
+ * <p>Keys and canonical language tags are held in sorted arrays, and message contents in a language by key table.
+ * Language tags are canonicalized, so that tags stored with another case or form match the locales selected by lookup.
+ * Equal contents share the same instance. Keys are grouped by the set of language tags they have messages for,
+ * so that resolving a bundle runs {@link Locale#lookup(List, Collection)} once per group instead of once per key.</p>
+ * <p>Resolved bundles are memoized in the snapshot, first by language ranges, then by resolved language tags.
+ * Requests sharing language ranges get the same bundle instance without computing anything.</p>
+ */
+public class MessageBundleSnapshot {
+
+    /**
+     * Maximum number of memoized bundles for each memoization level
+     */
+    private static final int MAX_MEMOIZED_BUNDLES = 256;
+
+    /**
+     * Default language tag of the domain, used if no language range matches a key
+     */
+    private final String defaultLanguageTag;
+
+    /**
+     * Sorted message keys
+     */
+    private final String[] keys;
+
+    /**
+     * Sorted canonical language tags of the messages, see {@link Locales#toCanonicalLanguageTag(String)}
+     */
+    private final String[] languageTags;
+
+    /**
+     * Message contents indexed by language tag index, then by key index, {@code null} if missing
+     */
+    private final String[][] contents;
+
+    /**
+     * Group index of each key
+     */
+    private final int[] keyGroups;
+
+    /**
+     * Locales available for each key group
+     */
+    private final List<List<Locale>> groupLocales;
+
+    /**
+     * Creation time in nanoseconds
+     */
+    private final long createdNanos;
+
+    /**
+     * Resolved bundles by language ranges
+     */
+    private final Map<List<Locale.LanguageRange>, MessageBundle> bundlesByRanges = new ConcurrentHashMap<>();
+
+    /**
+     * Resolved bundles by language tag indexes of the key groups
+     */
+    private final Map<List<Integer>, MessageBundle> bundlesByGroupLanguages = new ConcurrentHashMap<>();
+
+
+    /**
+     * Build a snapshot from the key messages of a domain.
+     *
+     * @param messages           All key messages of a domain
+     * @param defaultLanguageTag Default language tag of the domain
+     */
+    public MessageBundleSnapshot(final Collection<KeyMessage> messages, final String defaultLanguageTag) {
+
+        this.defaultLanguageTag = defaultLanguageTag;
+        this.createdNanos = System.nanoTime();
+
+        // Sorted keys and language tags
+        this.keys = messages.stream().map(KeyMessage::getKey).distinct().sorted().toArray(String[]::new);
+        this.languageTags = messages.stream()
+                .map(message -> Locales.toCanonicalLanguageTag(message.getLanguageTag()))
+                .distinct()
+                .sorted()
+                .toArray(String[]::new);
+
+        // Message contents table, equal contents sharing the same instance
+        final Map<String, String> contentPool = new HashMap<>();
+        this.contents = new String[languageTags.length][keys.length];
+        for (KeyMessage message : messages) {
+            final int languageIndex = Arrays.binarySearch(languageTags, Locales.toCanonicalLanguageTag(message.getLanguageTag()));
+            final int keyIndex = Arrays.binarySearch(keys, message.getKey());
+            contents[languageIndex][keyIndex] = (message.getContent() == null) ?
+                    null :
+                    contentPool.computeIfAbsent(message.getContent(), content -> content);
+        }
+
+        // Group keys by available language tags
+        final Map<BitSet, Integer> groupIndexes = new HashMap<>();
+        final List<List<Locale>> groupLocales = new ArrayList<>();
+        this.keyGroups = new int[keys.length];
+        for (int keyIndex = 0; keyIndex < keys.length; keyIndex++) {
+
+            final BitSet keyLanguages = new BitSet(languageTags.length);
+            for (int languageIndex = 0; languageIndex < languageTags.length; languageIndex++)
+                if (contents[languageIndex][keyIndex] != null)
+                    keyLanguages.set(languageIndex);
+
+            keyGroups[keyIndex] = groupIndexes.computeIfAbsent(keyLanguages, languages -> {
+                groupLocales.add(Collections.unmodifiableList(
+                        languages.stream()
+                                .mapToObj(languageIndex -> Locales.forLanguageTag(languageTags[languageIndex]))
+                                .collect(Collectors.toList())));
+                return groupLocales.size() - 1;
+            });
+        }
+        this.groupLocales = Collections.unmodifiableList(groupLocales);
+    }
+
+
+    /**
+     * Get the default language tag the snapshot was built with.
+     *
+     * @return The default language tag
+     */
+    public String getDefaultLanguageTag() {
+        return defaultLanguageTag;
+    }
+
+    /**
+     * Get the age of the snapshot.
+     *
+     * @return The age in nanoseconds
+     */
+    public long getAgeNanos() {
+        return System.nanoTime() - createdNanos;
+    }
+
+    /**
+     * Resolve the bundle for language ranges.
+     *
+     * @param languageRanges Language ranges used to select message language tags
+     * @return The resolved bundle
+     */
+    public MessageBundle resolve(final List<Locale.LanguageRange> languageRanges) {
+
+        // Bundle already resolved for the same language ranges
+        MessageBundle bundle = bundlesByRanges.get(languageRanges);
+        if (bundle != null)
+            return bundle;
+
+        // Select the canonical language tag of each key group
+        final List<Integer> groupLanguages = new ArrayList<>(groupLocales.size());
+        for (List<Locale> locales : groupLocales) {
+            final Locale lookupLocale = Locale.lookup(languageRanges, locales);
+            final String lookupTag = (lookupLocale == null) ?
+                    Locales.toCanonicalLanguageTag(defaultLanguageTag) :
+                    lookupLocale.toLanguageTag();
+            groupLanguages.add(Arrays.binarySearch(languageTags, lookupTag));
+        }
+
+        // Bundle already resolved for other language ranges selecting the same language tags
+        bundle = bundlesByGroupLanguages.get(groupLanguages);
+        if (bundle == null) {
+            bundle = buildBundle(groupLanguages);
+            memoize(bundlesByGroupLanguages, groupLanguages, bundle);
+        }
+        memoize(bundlesByRanges, new ArrayList<>(languageRanges), bundle);
+
+        return bundle;
+    }
+
+    /**
+     * Build the bundle for selected language tags.
+     *
+     * @param groupLanguages Language tag index of each key group, negative if the group has no language tag selected
+     * @return The bundle
+     */
+    private MessageBundle buildBundle(final List<Integer> groupLanguages) {
+
+        final Map<String, String> bundleContents = new LinkedHashMap<>();
+        for (int keyIndex = 0; keyIndex < keys.length; keyIndex++) {
+
+            final int languageIndex = groupLanguages.get(keyGroups[keyIndex]);
+            if (languageIndex >= 0 && contents[languageIndex][keyIndex] != null)
+                bundleContents.put(keys[keyIndex], contents[languageIndex][keyIndex]);
+        }
+
+        return new MessageBundle(Collections.unmodifiableMap(bundleContents));
+    }
+
+    /**
+     * Memoize a resolved bundle, unless the memoization map is full.
+     *
+     * @param bundles Memoized bundles
+     * @param key     Memoization key
+     * @param bundle  Resolved bundle
+     * @param <K>     Memoization key type
+     */
+    private static <K> void memoize(final Map<K, MessageBundle> bundles, final K key, final MessageBundle bundle) {
+
+        if (bundles.size() < MAX_MEMOIZED_BUNDLES)
+            bundles.putIfAbsent(key, bundle);
+    }
+}
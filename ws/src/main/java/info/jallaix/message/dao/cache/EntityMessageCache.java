@@ -0,0 +1,525 @@
+package info.jallaix.message.dao.cache;
+
+import info.jallaix.message.bean.EntityMessage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * <p>In-memory cache of entity messages, keyed by {@link EntityMessageKey}.</p>
+ * <p>The cache also records keys known to have no message, so that repeated lookups of missing language variants
+ * don't hit the index. Such negative entries expire sooner than cached messages and are replaced as soon as
+ * a message is cached for the same key.</p>
+ * <p>The cache is bounded: the least recently used entries are evicted when the maximum size is exceeded,
+ * and an entry expires after a fixed delay following its insertion.
+ * Writers are responsible for invalidating or replacing the messages they modify.
+ * Of two versions of a message, the newer one is kept.</p>
+ * <p>The cache is safe for concurrent use without global lock: entries are held by a concurrent map
+ * and each entry records its last access, so that lookups only contend on the entry they read.</p>
+ * <p>Hit, miss and eviction counters are maintained to help sizing the cache.</p>
+ */
+public class EntityMessageCache {
+
+    /**
+     * Maximum number of cached messages
+     */
+    private final int maxSize;
+
+    /**
+     * Number of entries to evict below the maximum size once it's exceeded, so that eviction isn't run on each insertion
+     */
+    private final int evictionMargin;
+
+    /**
+     * Delay in nanoseconds after which a cached message expires
+     */
+    private final long expireAfterWriteNanos;
+
+    /**
+     * Delay in nanoseconds after which a missing message entry expires
+     */
+    private final long missingExpireAfterWriteNanos;
+
+    /**
+     * Cached entries
+     */
+    private final ConcurrentHashMap<EntityMessageKey, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Logical clock ordering entry accesses
+     */
+    private final AtomicLong accessClock = new AtomicLong();
+
+    /**
+     * Indicate if an eviction is running, so that concurrent insertions don't evict the same entries
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * Number of lookups that found a message
+     */
+    private final LongAdder hitCount = new LongAdder();
+
+    /**
+     * Number of lookups that found a missing message entry
+     */
+    private final LongAdder missingHitCount = new LongAdder();
+
+    /**
+     * Number of lookups that didn't find any entry
+     */
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Number of entries evicted because of the size limit or expiry
+     */
+    private final LongAdder evictionCount = new LongAdder();
+
+
+    /**
+     * Constructor with size and time limits.
+     *
+     * @param maxSize                       Maximum number of cached entries, {@code 0} disables the cache
+     * @param expireAfterWriteMillis        Delay in milliseconds after which a cached message expires
+     * @param missingExpireAfterWriteMillis Delay in milliseconds after which a missing message entry expires
+     */
+    public EntityMessageCache(final int maxSize, final long expireAfterWriteMillis, final long missingExpireAfterWriteMillis) {
+
+        this.maxSize = maxSize;
+        this.evictionMargin = maxSize / 16;
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis);
+        this.missingExpireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(missingExpireAfterWriteMillis);
+    }
+
+
+    /**
+     * Look a message up, telling apart a cached message, a message known to be missing and an uncached key
+     * with a single access to the cache.
+     *
+     * @param key The message key
+     * @return The lookup result, holding a copy of the cached message if any
+     */
+    public Lookup lookup(final EntityMessageKey key) {
+
+        final Entry entry = getEntry(key);
+
+        // No entry
+        if (entry == null) {
+            missCount.increment();
+            return Lookup.ABSENT;
+        }
+
+        // Missing message entry
+        if (entry.message == null) {
+            missingHitCount.increment();
+            return Lookup.MISSING;
+        }
+
+        hitCount.increment();
+        return new Lookup(true, copy(entry.message));
+    }
+
+    /**
+     * Get a cached message.
+     *
+     * @param key The message key
+     * @return A copy of the cached message, or {@code null} if the message isn't cached or is known to be missing
+     */
+    public EntityMessage get(final EntityMessageKey key) {
+        return lookup(key).getMessage();
+    }
+
+    /**
+     * Indicate if a message is known to be missing.
+     *
+     * @param key The message key
+     * @return {@code true} if a missing message entry is cached for the key else {@code false}
+     */
+    public boolean isMissing(final EntityMessageKey key) {
+
+        final Entry entry = getEntry(key);
+
+        return entry != null && entry.message == null;
+    }
+
+    /**
+     * Cache a written message, replacing any entry cached for the same key unless it holds a newer version of the message.
+     *
+     * @param message The message to cache
+     */
+    public void put(final EntityMessage message) {
+
+        if (maxSize <= 0)
+            return;
+
+        entries.compute(EntityMessageKey.of(message), (key, entry) ->
+                (isLive(entry) && entry.message != null && isNewer(entry.message, message)) ?
+                        entry :
+                        new Entry(copy(message), expireAfterWriteNanos, accessClock.incrementAndGet()));
+        evictIfNeeded();
+    }
+
+    /**
+     * <p>Merge the result of an index lookup into the cache, and return the newer of the cached and found messages.</p>
+     * <p>A found message replaces the cached one only if its version is known and greater than the cached one,
+     * or if the version of the cached message is unknown. Since searches don't report versions
+     * and may run on an index not refreshed since the cached message was written, a cached message takes precedence
+     * over a searched one, while a message read in realtime with a newer version replaces it.
+     * If no message is cached, the found message is cached, or the key is recorded as missing if no message was found.</p>
+     *
+     * @param key          The message key
+     * @param foundMessage The message found in the index, {@code null} if no message was found
+     * @return A copy of the message to use, or {@code null} if no message exists for the key
+     */
+    public EntityMessage merge(final EntityMessageKey key, final EntityMessage foundMessage) {
+
+        if (maxSize <= 0)
+            return (foundMessage == null) ? null : copy(foundMessage);
+
+        final Entry mergedEntry = entries.compute(key, (entryKey, entry) -> {
+
+            // The cached message is kept unless the found one is newer
+            if (isLive(entry) && entry.message != null && (foundMessage == null || !isNewer(foundMessage, entry.message))) {
+                entry.accessTime = accessClock.incrementAndGet();
+                return entry;
+            }
+
+            // Cache the found message or remember it's missing
+            return (foundMessage == null) ?
+                    new Entry(null, missingExpireAfterWriteNanos, accessClock.incrementAndGet()) :
+                    new Entry(copy(foundMessage), expireAfterWriteNanos, accessClock.incrementAndGet());
+        });
+        evictIfNeeded();
+
+        return (mergedEntry.message == null) ? null : copy(mergedEntry.message);
+    }
+
+    /**
+     * Remove a message from the cache.
+     *
+     * @param key The message key
+     */
+    public void invalidate(final EntityMessageKey key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove all messages linked to an entity from the cache.
+     *
+     * @param domainId Identifier of the domain linked to the messages
+     * @param entityId Identifier of the entity linked to the messages
+     */
+    public void invalidateEntity(final String domainId, final String entityId) {
+        invalidateIf(key -> key.getDomainId().equals(domainId) && key.getEntityId().equals(entityId));
+    }
+
+    /**
+     * Remove all messages linked to a set of entities from the cache.
+     *
+     * @param domainId  Identifier of the domain linked to the messages
+     * @param entityIds Identifiers of the entities linked to the messages
+     */
+    public void invalidateEntities(final String domainId, final Collection<String> entityIds) {
+        invalidateIf(key -> key.getDomainId().equals(domainId) && entityIds.contains(key.getEntityId()));
+    }
+
+    /**
+     * Remove all messages linked to a domain from the cache.
+     *
+     * @param domainId Identifier of the domain linked to the messages
+     */
+    public void invalidateDomain(final String domainId) {
+        invalidateIf(key -> key.getDomainId().equals(domainId));
+    }
+
+    /**
+     * Remove all messages from the cache.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Get the number of cached entries, including expired ones not yet evicted.
+     *
+     * @return The number of cached entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of lookups that found a message.
+     *
+     * @return The hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the number of lookups that found a missing message entry.
+     *
+     * @return The missing hit count
+     */
+    public long getMissingHitCount() {
+        return missingHitCount.sum();
+    }
+
+    /**
+     * Get the number of lookups that didn't find any entry.
+     *
+     * @return The miss count
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Get the number of entries evicted because of the size limit or expiry.
+     *
+     * @return The eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Get the entry cached for a key and record its access, removing it if it has expired.
+     *
+     * @param key The message key
+     * @return The cached entry or {@code null}
+     */
+    private Entry getEntry(final EntityMessageKey key) {
+
+        final Entry entry = entries.get(key);
+        if (entry == null)
+            return null;
+
+        if (entry.isExpired()) {
+            evict(key, entry);
+            return null;
+        }
+
+        entry.accessTime = accessClock.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Evict expired entries, then the least recently used ones, once the maximum size is exceeded.
+     * Entries are evicted below the maximum size by a margin, so that a full cache isn't scanned on each insertion.
+     * A single thread evicts at a time, the others go on without waiting.
+     */
+    private void evictIfNeeded() {
+
+        if (entries.size() <= maxSize || !evicting.compareAndSet(false, true))
+            return;
+
+        try {
+            // Evict expired entries
+            entries.forEach((key, entry) -> {
+                if (entry.isExpired())
+                    evict(key, entry);
+            });
+
+            // Evict the least recently used entries, up to the access time of the last one to evict
+            final int excess = entries.size() - (maxSize - evictionMargin);
+            if (excess <= 0)
+                return;
+
+            final long[] accessTimes = entries.values().stream().mapToLong(entry -> entry.accessTime).toArray();
+            if (accessTimes.length < excess)
+                return;
+            Arrays.sort(accessTimes);
+            final long lastAccessTime = accessTimes[excess - 1];
+
+            entries.forEach((key, entry) -> {
+                if (entry.accessTime <= lastAccessTime)
+                    evict(key, entry);
+            });
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Remove an entry from the cache and count its eviction, unless it has been replaced concurrently.
+     *
+     * @param key   The message key
+     * @param entry The entry to evict
+     */
+    private void evict(final EntityMessageKey key, final Entry entry) {
+
+        if (entries.remove(key, entry))
+            evictionCount.increment();
+    }
+
+    /**
+     * Remove the entries whose key matches a predicate.
+     *
+     * @param predicate The predicate on message keys
+     */
+    private void invalidateIf(final Predicate<EntityMessageKey> predicate) {
+        entries.keySet().removeIf(predicate);
+    }
+
+    /**
+     * Indicate if an entry exists and hasn't expired.
+     *
+     * @param entry The cached entry, {@code null} if there is none
+     * @return {@code true} if the entry is usable else {@code false}
+     */
+    private static boolean isLive(final Entry entry) {
+        return entry != null && !entry.isExpired();
+    }
+
+    /**
+     * Indicate if a message is a newer version than another message of the same key.
+     * A message whose version is known is newer than a message whose version is unknown.
+     *
+     * @param message      The message to compare
+     * @param otherMessage The other message
+     * @return {@code true} if the message is newer else {@code false}
+     */
+    private static boolean isNewer(final EntityMessage message, final EntityMessage otherMessage) {
+
+        return message.getVersion() != null &&
+                (otherMessage.getVersion() == null || message.getVersion() > otherMessage.getVersion());
+    }
+
+    /**
+     * Copy a message so that cached instances are never shared with callers.
+     *
+     * @param message The message to copy
+     * @return The copied message
+     */
+    private static EntityMessage copy(final EntityMessage message) {
+
+        return new EntityMessage(
+                message.getId(),
+                message.getDomainId(),
+                message.getType(),
+                message.getEntityId(),
+                message.getLanguageTag(),
+                message.getContent(),
+                message.getVersion());
+    }
+
+    /**
+     * Result of a message lookup: a cached message, a message known to be missing, or no entry.
+     */
+    public static final class Lookup {
+
+        /**
+         * Result of a lookup that found no entry
+         */
+        private static final Lookup ABSENT = new Lookup(false, null);
+
+        /**
+         * Result of a lookup that found a missing message entry
+         */
+        private static final Lookup MISSING = new Lookup(true, null);
+
+        /**
+         * Indicate if an entry was found
+         */
+        private final boolean cached;
+
+        /**
+         * Copy of the cached message, {@code null} if there is none
+         */
+        private final EntityMessage message;
+
+        /**
+         * Constructor with lookup data.
+         *
+         * @param cached  Indicate if an entry was found
+         * @param message Copy of the cached message, {@code null} if there is none
+         */
+        private Lookup(final boolean cached, final EntityMessage message) {
+            this.cached = cached;
+            this.message = message;
+        }
+
+        /**
+         * Indicate if the cache has no entry for the key, so that the message must be read from the index.
+         *
+         * @return {@code true} if no entry was found else {@code false}
+         */
+        public boolean isAbsent() {
+            return !cached;
+        }
+
+        /**
+         * Indicate if the message is known to be missing.
+         *
+         * @return {@code true} if a missing message entry was found else {@code false}
+         */
+        public boolean isMissing() {
+            return cached && message == null;
+        }
+
+        /**
+         * Get the cached message.
+         *
+         * @return A copy of the cached message, or {@code null} if the message isn't cached or is known to be missing
+         */
+        public EntityMessage getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * Cached message, or missing message marker, with its expiry time and last access time.
+     */
+    private static class Entry {
+
+        /**
+         * Cached message, {@code null} if the message is known to be missing
+         */
+        private final EntityMessage message;
+
+        /**
+         * Insertion time in nanoseconds
+         */
+        private final long writeTime = System.nanoTime();
+
+        /**
+         * Delay in nanoseconds after which the entry expires
+         */
+        private final long expireAfterWriteNanos;
+
+        /**
+         * Last access time, read from the logical clock of the cache
+         */
+        private volatile long accessTime;
+
+        /**
+         * Constructor with message, expiry delay and access time.
+         *
+         * @param message               The message to cache, {@code null} for a missing message
+         * @param expireAfterWriteNanos Delay in nanoseconds after which the entry expires
+         * @param accessTime            Insertion time, read from the logical clock of the cache
+         */
+        private Entry(final EntityMessage message, final long expireAfterWriteNanos, final long accessTime) {
+            this.message = message;
+            this.expireAfterWriteNanos = expireAfterWriteNanos;
+            this.accessTime = accessTime;
+        }
+
+        /**
+         * Indicate if the entry has expired.
+         *
+         * @return {@code true} if the entry has expired else {@code false}
+         */
+        private boolean isExpired() {
+            return System.nanoTime() - writeTime >= expireAfterWriteNanos;
+        }
+    }
+}
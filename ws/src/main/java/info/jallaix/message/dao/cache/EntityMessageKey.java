@@ -0,0 +1,48 @@
+package info.jallaix.message.dao.cache;
+
+import info.jallaix.message.bean.EntityMessage;
+import lombok.Value;
+
+/**
+ * This bean holds the data that uniquely identify an entity message:
+ * <ul>
+ * <li>{@code domainId} - {@link String} - Identifier of the domain linked to the message</li>
+ * <li>{@code type} - {@link String} - Type of the message</li>
+ * <li>{@code entityId} - {@link String} - Identifier of the entity linked to the message</li>
+ * <li>{@code languageTag} - {@link String} - Language tag of the message</li>
+ * </ul>
+ */
+@Value
+public class EntityMessageKey {
+
+    /**
+     * Domain identifier
+     */
+    private String domainId;
+
+    /**
+     * Message type
+     */
+    private String type;
+
+    /**
+     * Entity identifier
+     */
+    private String entityId;
+
+    /**
+     * Language tag
+     */
+    private String languageTag;
+
+
+    /**
+     * Get the key identifying a message.
+     *
+     * @param message The message
+     * @return The message key
+     */
+    public static EntityMessageKey of(EntityMessage message) {
+        return new EntityMessageKey(message.getDomainId(), message.getType(), message.getEntityId(), message.getLanguageTag());
+    }
+}
@@ -1,34 +1,69 @@
 package info.jallaix.message.dao.impl;
 
-import com.esotericsoftware.kryo.Kryo;
 import info.jallaix.message.bean.Domain;
 import info.jallaix.message.bean.EntityMessage;
 import info.jallaix.message.config.DomainHolder;
+import info.jallaix.message.dao.ActionListenerFuture;
 import info.jallaix.message.dao.DomainDaoCustom;
+import info.jallaix.message.dao.EntityTagMismatchException;
+import info.jallaix.message.dao.RefreshPolicy;
+import info.jallaix.message.dao.cache.EntityMessageCache;
+import info.jallaix.message.dao.cache.EntityMessageKey;
+import info.jallaix.message.dao.interceptor.I18nMessageLocalizer;
+import info.jallaix.message.dao.interceptor.LanguageResolution;
 import info.jallaix.message.dao.interceptor.MissingSimpleMessageException;
 import info.jallaix.message.dao.interceptor.ThreadLocaleHolder;
 import info.jallaix.message.dao.interceptor.UnsupportedLanguageException;
 import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequestBuilder;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateRequestBuilder;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.index.engine.DocumentAlreadyExistsException;
+import org.elasticsearch.index.engine.DocumentMissingException;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.fetch.source.FetchSourceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.ElasticsearchException;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.DefaultResultMapper;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.ResultsMapper;
 import org.springframework.data.elasticsearch.core.query.DeleteQuery;
-import org.springframework.data.elasticsearch.core.query.GetQuery;
-import org.springframework.data.elasticsearch.core.query.IndexQuery;
-import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 import org.springframework.data.elasticsearch.repository.support.ElasticsearchRepositoryFactory;
 import org.springframework.data.elasticsearch.repository.support.SimpleElasticsearchRepository;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -47,6 +82,9 @@ import java.util.stream.StreamSupport;
  * <li>
  * When deleting domains, their descriptions found in the message index are also deleted.
  * </li>
+ * <li>
+ * Domains may be found asynchronously, the domain and its description messages being requested concurrently.
+ * </li>
  * </ul>
  */
 @SuppressWarnings({"unused", "SpringJavaAutowiredMembersInspection"})
@@ -71,65 +109,256 @@ public class DomainDaoImpl implements DomainDaoCustom {
     private ThreadLocaleHolder threadLocaleHolder;
 
     /**
-     * Serialization framework
+     * Cache of entity messages
+     */
+    @Autowired
+    private EntityMessageCache entityMessageCache;
+
+    /**
+     * Localization engine of the properties annotated with {@code @I18nMessage}
      */
     @Autowired
-    private Kryo kryo;
+    private I18nMessageLocalizer i18nMessageLocalizer;
+
+    /**
+     * Policy for refreshing the message index after writes
+     */
+    @Value("${i18n.message.refreshPolicy:IMMEDIATE}")
+    private RefreshPolicy refreshPolicy;
+
+    /**
+     * Maximum number of documents written by a single bulk request
+     */
+    @Value("${i18n.message.bulkSize:500}")
+    private int bulkSize;
+
+    /**
+     * Number of times a write is retried on a version conflict, when the caller doesn't expect a specific version
+     */
+    @Value("${i18n.message.retryOnConflict:3}")
+    private int retryOnConflict;
 
     /**
      * Default Elasticsearch repository
      */
     private SimpleElasticsearchRepository<Domain> esRepository;
 
+    /**
+     * Mapper of asynchronous responses to domains
+     */
+    private ResultsMapper resultsMapper;
+
 
     /*----------------------------------------------------------------------------------------------------------------*/
     /*                                           Custom repository operations                                         */
     /*----------------------------------------------------------------------------------------------------------------*/
 
     /**
-     * Find a domain by a code with localized description.
-     * {@link ThreadLocaleHolder#getOutputLocales()} is used for language selection.
+     * <p>Find a domain by a code with localized description.
+     * {@link ThreadLocaleHolder#getOutputLocales()} is used for language selection.</p>
+     * <p>Description messages are keyed by the domain identifier, so they are requested once the domain is found.</p>
      *
      * @param code The domain code
      * @return The domain found
      */
     @Override
     public Domain findByCode(String code) {
+        return ActionListenerFuture.await(findByCodeAsync(code));
+    }
+
+    /**
+     * <p>Find the entity tag of a domain localized for the output locales, without reading nor localizing the domain.</p>
+     * <p>The entity tag is derived from the domain document version, the identifier and version of the description
+     * message selected for the output locales, and the output content language. They are read with realtime GET
+     * requests that don't fetch any document source.</p>
+     *
+     * @param id The domain identifier
+     * @return The entity tag, or {@code null} if the domain doesn't exist or the output locales can't be bounded
+     */
+    @Override
+    public String findEntityTag(String id) {
+        return ActionListenerFuture.await(findEntityTagAsync(id));
+    }
+
+    /**
+     * <p>Find the entity tag of a domain without blocking the calling thread, see {@link #findEntityTag(String)}.</p>
+     * <p>The domain document version and the description message versions are requested concurrently.</p>
+     *
+     * @param id The domain identifier
+     * @return The future entity tag, completed with {@code null} if the domain doesn't exist or the output locales can't be bounded
+     */
+    @Override
+    public CompletableFuture<String> findEntityTagAsync(String id) {
+
+        // The messages can't be probed if a wildcard matches any language tag
+        final LanguageResolution languageResolution = threadLocaleHolder.getLanguageResolution();
+        if (id == null || languageResolution.getCandidateLanguageTags() == null)
+            return CompletableFuture.completedFuture(null);
+
+        return probeEntityTagAsync(id, languageResolution, false)
+                .thenApply(probe -> (probe == null) ? null : probe.entityTag);
+    }
+
+    /**
+     * <p>Find a domain by identifier with localized description and its entity tag, without blocking the calling thread.
+     * {@link ThreadLocaleHolder#getOutputLocales()} is used for language selection.</p>
+     * <p>The domain and its entity tag are derived from the same realtime GET requests, issued concurrently,
+     * so that the entity tag always matches the returned domain. If the output locales can't be bounded,
+     * the domain is found with {@link #findOneAsync(String)} and has no entity tag.</p>
+     * <p>If the client may hold a representation of the domain, the entity tag is first probed without reading
+     * the domain source, and the domain is only read and localized if the client doesn't hold the current one.</p>
+     *
+     * @param id          The domain identifier
+     * @param notModified Predicate telling if the client holds the representation of an entity tag,
+     *                    {@code null} if the client holds no representation
+     * @return The future domain and entity tag, completed with {@code null} if the domain doesn't exist.
+     * The domain is {@code null} if the client holds the representation of the entity tag.
+     */
+    @Override
+    public CompletableFuture<Pair<Domain, String>> findOneWithEntityTagAsync(String id, Predicate<String> notModified) {
+
+        // Check the identifier is not null
+        if (id == null) {
+            ActionRequestValidationException e = new ActionRequestValidationException();
+            e.addValidationError("id can't be null");
+            return ActionListenerFuture.failed(e);
+        }
+
+        // The messages can't be probed if a wildcard matches any language tag
+        final LanguageResolution languageResolution = threadLocaleHolder.getLanguageResolution();
+        if (languageResolution.getCandidateLanguageTags() == null)
+            return findOneAsync(id).thenApply(domain -> (domain == null) ? null : new ImmutablePair<>(domain, null));
+
+        if (notModified == null)
+            return probeEntityTagAsync(id, languageResolution, true)
+                    .thenApply(probe -> (probe == null) ? null : new ImmutablePair<>(probe.domain, probe.entityTag));
+
+        // Read and localize the domain only if the client doesn't hold the representation of the current entity tag
+        return probeEntityTagAsync(id, languageResolution, false).thenCompose(probe -> {
+
+            if (probe == null)
+                return CompletableFuture.completedFuture(null);
+            if (notModified.test(probe.entityTag))
+                return CompletableFuture.completedFuture(new ImmutablePair<>(null, probe.entityTag));
+
+            return probeEntityTagAsync(id, languageResolution, true)
+                    .thenApply(sourceProbe -> (sourceProbe == null) ? null : new ImmutablePair<>(sourceProbe.domain, sourceProbe.entityTag));
+        });
+    }
+
+    /**
+     * Find a domain by identifier with a single GET request, without reading nor localizing its description.
+     *
+     * @param id The domain identifier
+     * @return The domain found, with the persisted description instead of the localized one, or {@code null} if the domain doesn't exist
+     */
+    @Override
+    public Domain findOneWithoutDescription(String id) {
+
+        // Check the identifier is not null
+        if (id == null) {
+            ActionRequestValidationException e = new ActionRequestValidationException();
+            e.addValidationError("id can't be null");
+            throw e;
+        }
+
+        final Document domainDocument = Domain.class.getDeclaredAnnotation(Document.class);
+        return mapVersionedDomain(esOperations.getClient()
+                .prepareGet(domainDocument.indexName(), domainDocument.type(), id)
+                .get());
+    }
+
+    /**
+     * <p>Find a domain by identifier with localized description, without blocking the calling thread.
+     * {@link ThreadLocaleHolder#getOutputLocales()} is used for language selection.</p>
+     * <p>The domain GET and the description messages request are issued concurrently, then joined.</p>
+     *
+     * @param id The domain identifier
+     * @return The future domain found, completed with {@code null} if the domain doesn't exist
+     */
+    @Override
+    public CompletableFuture<Domain> findOneAsync(String id) {
+
+        // Check the identifier is not null
+        if (id == null) {
+            ActionRequestValidationException e = new ActionRequestValidationException();
+            e.addValidationError("id can't be null");
+            return ActionListenerFuture.failed(e);
+        }
+
+        // The output locales are bound to the calling thread
+        final LanguageResolution languageResolution = threadLocaleHolder.getLanguageResolution();
+
+        // Fan out the domain and description messages requests
+        final Document domainDocument = Domain.class.getDeclaredAnnotation(Document.class);
+        final ActionListenerFuture<GetResponse> domainFuture = new ActionListenerFuture<>();
+        esOperations.getClient()
+                .prepareGet(domainDocument.indexName(), domainDocument.type(), id)
+                .execute(domainFuture);
+        final CompletableFuture<List<EntityMessage>> messagesFuture = i18nMessageLocalizer.findMessagesAsync(Domain.class, id, languageResolution);
+
+        return domainFuture.thenCombine(messagesFuture, (domainResponse, messages) ->
+                i18nMessageLocalizer.localize(mapVersionedDomain(domainResponse), messages, languageResolution));
+    }
+
+    /**
+     * <p>Find a domain by a code with localized description, without blocking the calling thread.
+     * {@link ThreadLocaleHolder#getOutputLocales()} is used for language selection.</p>
+     * <p>The description messages are requested once the domain is found.</p>
+     *
+     * @param code The domain code
+     * @return The future domain found, completed with {@code null} if the domain doesn't exist
+     */
+    @Override
+    public CompletableFuture<Domain> findByCodeAsync(String code) {
 
         // Check the code is not null
         if (code == null) {
             ActionRequestValidationException e = new ActionRequestValidationException();
             e.addValidationError("code can't be null");
-            throw e;
+            return ActionListenerFuture.failed(e);
         }
 
+        // The output locales are bound to the calling thread
+        final LanguageResolution languageResolution = threadLocaleHolder.getLanguageResolution();
+
         // Find domains by code
-        List<Domain> domains = esOperations.queryForList(
-                new NativeSearchQueryBuilder()
-                        .withQuery(
-                                QueryBuilders.constantScoreQuery(
-                                        QueryBuilders.boolQuery()
-                                                .must(QueryBuilders.termQuery(Domain.FIELD_CODE.getName(), code))))
-                        .build(), Domain.class);
-
-        // Check results
-        if (domains.isEmpty())
-            return null;
-        else if (domains.size() > 1)
-            throw new RuntimeException("At most one domain should be found given the criteria.");
-        else
-            return localizeDescription(domains.get(0));
+        final Document domainDocument = Domain.class.getDeclaredAnnotation(Document.class);
+        final ActionListenerFuture<SearchResponse> searchFuture = new ActionListenerFuture<>();
+        esOperations.getClient()
+                .prepareSearch(domainDocument.indexName())
+                .setTypes(domainDocument.type())
+                .setQuery(buildCodeQuery(code))
+                .setVersion(true)
+                .execute(searchFuture);
+
+        return searchFuture.thenCompose(response -> {
+
+            // Check results
+            final List<Domain> domains = getResultsMapper().mapResults(response, Domain.class, null).getContent();
+            if (domains.isEmpty())
+                return CompletableFuture.completedFuture(null);
+            else if (domains.size() > 1)
+                throw new RuntimeException("At most one domain should be found given the criteria.");
+
+            final Domain domain = domains.get(0);
+            domain.setVersion(response.getHits().getAt(0).getVersion());
+            return i18nMessageLocalizer.findMessagesAsync(Domain.class, domain.getId(), languageResolution)
+                    .thenApply(messages -> i18nMessageLocalizer.localize(domain, messages, languageResolution));
+        });
     }
 
     /**
-     * Find a domain by identifier with localized description.
-     * {@link ThreadLocaleHolder#getOutputLocales()} is used for language selection.
+     * <p>Find a domain by identifier with localized description.
+     * {@link ThreadLocaleHolder#getOutputLocales()} is used for language selection.</p>
+     * <p>The domain GET and the description messages request are issued concurrently, see {@link #findOneAsync(String)},
+     * so that the latency is the one of a single round trip.</p>
      *
      * @param id The domain identifier
      * @return The domain found
      */
     public Domain findOne(String id) {
-        return localizeDescription(getElasticsearchRepository().findOne(id));
+        return ActionListenerFuture.await(findOneAsync(id));
     }
 
     /**
@@ -152,7 +381,7 @@ public class DomainDaoImpl implements DomainDaoCustom {
     public Page<Domain> findAll(Pageable pageable) {
 
         Page<Domain> page = getElasticsearchRepository().findAll(pageable);
-        page.forEach(domain -> localizeDescription(Domain.class.cast(domain)));
+        localizeDescriptions(page);
 
         return page;
     }
@@ -182,10 +411,14 @@ public class DomainDaoImpl implements DomainDaoCustom {
     }
 
     /**
-     * Save a domain and save its description in the message's index type.
+     * <p>Save a domain and save its description in the message's index type.</p>
+     * <p>The domain and its message are written on condition that they weren't modified since they were read,
+     * or that the domain has the version set on the entity. Without version set on the entity,
+     * the save is retried at most {@code i18n.message.retryOnConflict} times on a conflict.</p>
      *
      * @param entity The domain to save
      * @return The domain saved
+     * @throws OptimisticLockingFailureException If the domain or its message is modified concurrently
      */
     @SuppressWarnings("unused")
     public Domain save(Domain entity) {
@@ -194,36 +427,212 @@ public class DomainDaoImpl implements DomainDaoCustom {
         if (entity == null)
             return getElasticsearchRepository().save((Domain) null);
 
+        return retryOnConflict(entity, () -> {
+
+            // Replace the domain description's literal value by a message code
+            Pair<Domain, String> updatedDomainDescription = updateDescription(entity);
+
+            // Get the existing domain to update if it already exists
+            final Domain existingDomain = findExistingDomain(entity);
+
+            // Get the domain description's messages for the input locale, with their versions
+            final List<EntityMessage> inputMessages =
+                    (existingDomain == null) ?
+                            Collections.emptyList() :
+                            getMessages(Collections.singleton(existingDomain.getId()), getInputLanguageTags());
+
+            // Detect locale errors on a domain update
+            checkLocaleForDomainUpdate(existingDomain, inputMessages);
+
+            // Save the domain, on condition that it has the expected version or the version read
+            final Domain domainToSave = updatedDomainDescription.getLeft();
+            if (domainToSave.getVersion() == null && existingDomain != null)
+                domainToSave.setVersion(existingDomain.getVersion());
+            Domain resultDomain = indexDomain(domainToSave);
+
+            return saveDescription(resultDomain, updatedDomainDescription.getRight(), existingDomain == null, inputMessages);
+        });
+    }
+
+    /**
+     * <p>Create a domain if it doesn't exist yet, and save its description in the message's index type.</p>
+     * <p>The domain is written with a single create request, that fails if the domain exists.
+     * The existence of the domain isn't checked before.</p>
+     *
+     * @param entity The domain to create
+     * @return The domain created
+     * @throws DataIntegrityViolationException If the domain already exists
+     */
+    @Override
+    public Domain create(Domain entity) {
+
         // Replace the domain description's literal value by a message code
-        Pair<Domain, String> updatedDomainDescription = updateDescription(entity);
+        final Pair<Domain, String> updatedDomainDescription = updateDescription(entity);
+        final Domain resultDomain = updatedDomainDescription.getLeft();
+        if (resultDomain.getId() == null)
+            resultDomain.setId(newDocumentId());
+
+        // Create the domain, the write result tells if it already exists
+        final Document domainDocument = Domain.class.getDeclaredAnnotation(Document.class);
+        final IndexResponse response;
+        try {
+            response = esOperations.getClient()
+                    .prepareIndex(domainDocument.indexName(), domainDocument.type(), resultDomain.getId())
+                    .setSource(toSource(resultDomain))
+                    .setOpType(IndexRequest.OpType.CREATE)
+                    .get();
+        } catch (RuntimeException e) {
+            if (ExceptionsHelper.unwrapCause(e) instanceof DocumentAlreadyExistsException)
+                throw new DataIntegrityViolationException("Domain already exists", e);
+            throw e;
+        }
+        resultDomain.setVersion(response.getVersion());
+
+        // Copy the identifier of a new domain
+        entity.setId(resultDomain.getId());
+
+        return saveDescription(resultDomain, updatedDomainDescription.getRight(), true, Collections.emptyList());
+    }
+
+    /**
+     * <p>Update an existing domain, and save its description in the message's index type for the input locale.</p>
+     * <p>The domain is written with a single update request, that fails if the domain doesn't exist.
+     * The existence of the domain is only checked if the input locale is rejected,
+     * so that a missing domain is reported rather than a locale error.</p>
+     * <p>The domain and its message are written on condition that the domain has the version set on the entity,
+     * and that the message wasn't modified since it was read. Without version set on the entity,
+     * the update is retried at most {@code i18n.message.retryOnConflict} times on a conflict.</p>
+     *
+     * @param entity The domain to update
+     * @return The domain updated, or {@code null} if the domain doesn't exist
+     * @throws OptimisticLockingFailureException If the domain or its message is modified concurrently
+     */
+    @Override
+    public Domain update(Domain entity) {
+        return update(entity, Collections.emptyMap());
+    }
 
-        // Get the existing domain to update if it already exists
-        final Domain existingDomain = findExistingDomain(entity);
+    /**
+     * Update an existing domain, see {@link #update(Domain)}, on condition that the domain description's messages
+     * for the input locale have the expected versions.
+     *
+     * @param entity                  The domain to update
+     * @param expectedMessageVersions Expected versions of description messages by identifier,
+     *                                a {@code null} version for a message that must not exist.
+     *                                Messages missing from the map aren't checked.
+     * @return The domain updated, or {@code null} if the domain doesn't exist
+     * @throws OptimisticLockingFailureException If the domain or its message is modified concurrently,
+     *                                           or if a message doesn't have the expected version
+     */
+    private Domain update(final Domain entity, final Map<String, Long> expectedMessageVersions) {
 
-        // Detect locale errors on a domain update
-        checkLocaleForDomainUpdate(existingDomain);
+        if (entity.getId() == null)
+            return null;
 
-        // Save the domain
-        Domain resultDomain = getElasticsearchRepository().save(updatedDomainDescription.getLeft());
+        return retryOnConflict(entity, () -> {
 
-        // On creation, build and save the domain description's message for each language supported by the I18n domain
-        // On update, save the localized description only
-        if (existingDomain == null)
-            insertInitialMessage(resultDomain.getId(), updatedDomainDescription.getRight());
-        else
-            insertOrUpdateMessage(resultDomain.getId(), updatedDomainDescription.getRight());
+            // Replace the domain description's literal value by a message code
+            final Pair<Domain, String> updatedDomainDescription = updateDescription(entity);
+            final Domain resultDomain = updatedDomainDescription.getLeft();
 
-        // Set back the localized domain description
-        resultDomain.setDescription(updatedDomainDescription.getRight());
+            // Detect locale errors from the domain description's messages for the input locale, read with their versions
+            final List<EntityMessage> inputMessages = getMessages(Collections.singleton(resultDomain.getId()), getInputLanguageTags());
+            try {
+                checkLocaleForDomainUpdate(resultDomain, inputMessages);
+            } catch (UnsupportedLanguageException | MissingSimpleMessageException e) {
+                if (!getElasticsearchRepository().exists(resultDomain.getId()))
+                    return null;
+                throw e;
+            }
 
-        return resultDomain;
+            // Check the messages have the expected versions, the message written is pinned to the version read
+            if (!expectedMessageVersions.isEmpty()) {
+                final Map<String, Long> inputMessageVersions = new HashMap<>();
+                getInputLanguageTags().forEach(languageTag -> inputMessageVersions.put(
+                        EntityMessage.buildId(i18nDomainHolder.getDomain().getId(), Domain.DOMAIN_DESCRIPTION_TYPE, resultDomain.getId(), languageTag),
+                        null));
+                inputMessages.forEach(message -> inputMessageVersions.put(message.getId(), message.getVersion()));
+
+                inputMessageVersions.forEach((messageId, version) -> {
+                    if (expectedMessageVersions.containsKey(messageId) && !Objects.equals(expectedMessageVersions.get(messageId), version))
+                        throw new OptimisticLockingFailureException("The message " + messageId + " has been modified concurrently");
+                });
+            }
+
+            // Update the domain, the write result tells if it doesn't exist or if it has another version
+            final Document domainDocument = Domain.class.getDeclaredAnnotation(Document.class);
+            final UpdateRequestBuilder updateRequest = esOperations.getClient()
+                    .prepareUpdate(domainDocument.indexName(), domainDocument.type(), resultDomain.getId())
+                    .setDoc(toSource(resultDomain));
+            if (resultDomain.getVersion() != null)
+                updateRequest.setVersion(resultDomain.getVersion());
+            else
+                updateRequest.setRetryOnConflict(retryOnConflict);
+
+            final UpdateResponse response;
+            try {
+                response = updateRequest.get();
+            } catch (RuntimeException e) {
+                if (ExceptionsHelper.unwrapCause(e) instanceof DocumentMissingException)
+                    return null;
+                if (isVersionConflict(e))
+                    throw new OptimisticLockingFailureException("The domain " + resultDomain.getId() + " has been modified concurrently", e);
+                throw e;
+            }
+            resultDomain.setVersion(response.getVersion());
+
+            return saveDescription(resultDomain, updatedDomainDescription.getRight(), false, inputMessages);
+        });
     }
 
     /**
-     * Save a list of domains and save their descriptions in the message's index type.
+     * <p>Update an existing domain on condition that its entity tag matches the {@code If-Match} header of a request,
+     * see {@link #findEntityTag(String)}.</p>
+     * <p>The domain and its message are written on condition that they have the versions the entity tag is derived from,
+     * so that they can't change between the entity tag check and the write. A version already set on the entity,
+     * by a partial update merged into the domain read, must be the one the entity tag is derived from.</p>
+     *
+     * @param entity  The domain to update
+     * @param ifMatch The {@code If-Match} header, {@code null} for an unconditional update
+     * @return The domain updated, or {@code null} if the domain doesn't exist
+     * @throws EntityTagMismatchException If the entity tag doesn't match, or if the domain is modified concurrently
+     */
+    @Override
+    public Domain update(Domain entity, String ifMatch) {
+
+        if (ifMatch == null || entity.getId() == null)
+            return update(entity);
+
+        // Get the current entity tag and the domain version it's derived from
+        final EntityTagProbe probe = ActionListenerFuture.await(
+                probeEntityTagAsync(entity.getId(), threadLocaleHolder.getLanguageResolution(), false));
+        if (probe == null)
+            return null;
+        if (!matchesEntityTag(ifMatch, probe.entityTag)
+                || (entity.getVersion() != null && entity.getVersion() != probe.domainVersion))
+            throw new EntityTagMismatchException(entity.getId(), null);
+
+        // Update the domain and message versions the entity tag is derived from
+        entity.setVersion(probe.domainVersion);
+        try {
+            return update(entity, probe.messageVersions);
+        } catch (OptimisticLockingFailureException e) {
+            throw new EntityTagMismatchException(entity.getId(), e);
+        }
+    }
+
+    /**
+     * <p>Save a list of domains and save their descriptions in the message's index type.</p>
+     * <p>Existing domains and their messages are found with their versions by multi-get requests, then domains and messages
+     * are written with bulk requests of at most {@code i18n.message.bulkSize} documents.
+     * As with a single save, each document is written on condition that it wasn't modified since it was read,
+     * or that the domain has the version set on the entity, and a new document on condition that it doesn't exist yet.
+     * Documents that fail to be written, concurrently modified ones included, are reported together
+     * once all bulk requests are sent, and the messages of domains that failed to be written are not saved.</p>
      *
      * @param entities The domains to save
      * @return The domains saved
+     * @throws ElasticsearchException If some documents failed to be written
      */
     @SuppressWarnings("unused")
     public Iterable<Domain> save(Iterable<Domain> entities) {
@@ -233,60 +642,97 @@ public class DomainDaoImpl implements DomainDaoCustom {
             return getElasticsearchRepository().save((Iterable<Domain>) null);
 
         // Check if a domain to save is null
-        if (StreamSupport.stream(entities.spliterator(), false)
-                .collect(Collectors.toList()).contains(null)) {
+        final List<Domain> initialDomains = StreamSupport.stream(entities.spliterator(), false).collect(Collectors.toList());
+        if (initialDomains.contains(null)) {
 
             // Throw the default exception for saving null documents
             getElasticsearchRepository().save(Collections.singleton(null));
         }
 
-        // Replace the domain description's literal value for each domain to save
-        Collection<Domain> domainsToSave = new ArrayList<>();
-        List<Pair<Domain, String>> descriptions = new ArrayList<>();
-        for (Domain initialDomain : entities) {
-
-            // Replace the domain description's literal value by a message type
-            Pair<Domain, String> updatedDomainDescription = updateDescription(initialDomain);
-            domainsToSave.add(updatedDomainDescription.getLeft());
-
-            // Get the existing domain to update if it already exists
-            final Domain existingDomain = findExistingDomain(initialDomain);
-
-            // Detect locale errors on a domain update
-            checkLocaleForDomainUpdate(existingDomain);
-
-            descriptions.add(
-                    new MutablePair<>(
-                            existingDomain,
-                            updatedDomainDescription.getRight()));
-        }
-
-        // Save domains
-        Iterable<Domain> resultEntities = getElasticsearchRepository().save(domainsToSave);
-
-        // Save localized messages
-        int descriptionIndex = 0;
-        for (Object resultEntity : resultEntities) {
+        // Replace the domain description's literal value by a message type for each domain to save
+        final List<Pair<Domain, String>> updatedDomainDescriptions = initialDomains.stream()
+                .map(this::updateDescription)
+                .collect(Collectors.toList());
 
-            Pair<Domain, String> description = descriptions.get(descriptionIndex);
-            descriptionIndex++;
+        // Get the existing domains to update with their versions, with a single request
+        final Map<String, Domain> existingDomainsById = findExistingDomains(initialDomains);
 
-            if (resultEntity != null) {
-                Domain resultDomain = Domain.class.cast(resultEntity);
+        // Get the domain descriptions' messages for the input locale with their versions, with a single request
+        final Map<String, List<EntityMessage>> inputMessagesByDomainId =
+                getMessages(existingDomainsById.keySet(), getInputLanguageTags()).stream()
+                        .collect(Collectors.groupingBy(EntityMessage::getEntityId));
 
-                // On creation, build and save the domain description's message for each language supported by the I18N domain
-                // On update, save the localized description only
-                if (description.getLeft() == null)
-                    insertInitialMessage(resultDomain.getId(), description.getRight());
-                else
-                    insertOrUpdateMessage(resultDomain.getId(), description.getRight());
+        // Detect locale errors on domain updates, before anything is written
+        existingDomainsById.values()
+                .forEach(existingDomain -> checkLocaleForDomainUpdate(
+                        existingDomain,
+                        inputMessagesByDomainId.getOrDefault(existingDomain.getId(), Collections.emptyList())));
 
-                // Set back the domain description's literal value
-                resultDomain.setDescription(description.getRight());
+        // Save domains, identifiers are assigned to new domains as bulk requests don't return generated ones
+        final List<Domain> resultDomains = updatedDomainDescriptions.stream()
+                .map(Pair::getLeft)
+                .collect(Collectors.toList());
+        resultDomains.stream()
+                .filter(domain -> domain.getId() == null)
+                .forEach(domain -> domain.setId(newDocumentId()));
+
+        // Domains are saved on condition that they have the expected version or the version read
+        resultDomains.stream()
+                .filter(domain -> domain.getVersion() == null && existingDomainsById.containsKey(domain.getId()))
+                .forEach(domain -> domain.setVersion(existingDomainsById.get(domain.getId()).getVersion()));
+        final Map<String, String> failedDocuments = bulkIndex(resultDomains, true);
+
+        // Build the messages of saved domains
+        // On creation, build the domain description's message for the default language of the I18N domain
+        // On update, build the localized description's message only
+        // The input locale message is saved on condition that it wasn't modified since it was read
+        final List<EntityMessage> initialMessages = new ArrayList<>(resultDomains.size());
+        final List<EntityMessage> inputMessages = new ArrayList<>(resultDomains.size());
+        for (int domainIndex = 0; domainIndex < resultDomains.size(); domainIndex++) {
+
+            final Domain resultDomain = resultDomains.get(domainIndex);
+            final String descriptionContent = updatedDomainDescriptions.get(domainIndex).getRight();
+
+            if (!failedDocuments.containsKey(resultDomain.getId())) {
+                if (!existingDomainsById.containsKey(initialDomains.get(domainIndex).getId()))
+                    initialMessages.add(buildInitialMessage(resultDomain.getId(), descriptionContent));
+                else {
+                    final EntityMessage inputMessage = buildInputMessage(resultDomain.getId(), descriptionContent);
+                    findMessage(inputMessagesByDomainId.getOrDefault(resultDomain.getId(), Collections.emptyList()), inputMessage.getLanguageTag())
+                            .ifPresent(message -> inputMessage.setVersion(message.getVersion()));
+                    inputMessages.add(inputMessage);
+                }
             }
+
+            // Set back the domain description's literal value
+            resultDomain.setDescription(descriptionContent);
         }
 
-        return resultEntities;
+        // Save messages and cache the saved ones, the cached messages that failed to be written may be stale
+        final Map<String, String> failedMessages = bulkIndex(initialMessages, false);
+        failedMessages.putAll(bulkIndex(inputMessages, true));
+        for (EntityMessage message : initialMessages)
+            cacheSavedMessage(message, failedMessages);
+        for (EntityMessage message : inputMessages)
+            cacheSavedMessage(message, failedMessages);
+        failedDocuments.putAll(failedMessages);
+
+        // Make the domains and their messages available for search
+        if (refreshPolicy != RefreshPolicy.NONE)
+            refreshIndex();
+
+        // Take changes of the I18N domain into account
+        reloadI18nDomain(resultDomains.stream()
+                .filter(domain -> !failedDocuments.containsKey(domain.getId()))
+                .collect(Collectors.toList()));
+
+        // Report documents that failed to be written
+        if (!failedDocuments.isEmpty())
+            throw new ElasticsearchException(
+                    "Bulk indexing has failures. Use ElasticsearchException.getFailedDocuments() for detailed messages [" + failedDocuments + "]",
+                    failedDocuments);
+
+        return resultDomains;
     }
 
     /**
@@ -312,6 +758,54 @@ public class DomainDaoImpl implements DomainDaoCustom {
         deleteMessages(id);
     }
 
+    /**
+     * <p>Delete a domain and its localized description on condition that its entity tag matches
+     * the {@code If-Match} header of a request, see {@link #findEntityTag(String)}.</p>
+     * <p>The domain is deleted on condition that it has the version the entity tag is derived from,
+     * so that it can't change between the entity tag check and the delete.</p>
+     *
+     * @param id      The domain identifier
+     * @param ifMatch The {@code If-Match} header, {@code null} for an unconditional delete
+     * @return {@code true} if the domain is deleted, {@code false} if it doesn't exist
+     * @throws EntityTagMismatchException If the entity tag doesn't match, or if the domain is modified concurrently
+     */
+    @Override
+    public boolean delete(String id, String ifMatch) {
+
+        if (id == null)
+            return false;
+
+        final Document domainDocument = Domain.class.getDeclaredAnnotation(Document.class);
+        final DeleteRequestBuilder deleteRequest = esOperations.getClient()
+                .prepareDelete(domainDocument.indexName(), domainDocument.type(), id);
+
+        // Check the current entity tag and delete the domain version it's derived from
+        if (ifMatch != null) {
+            final EntityTagProbe probe = ActionListenerFuture.await(
+                    probeEntityTagAsync(id, threadLocaleHolder.getLanguageResolution(), false));
+            if (probe == null)
+                return false;
+            if (!matchesEntityTag(ifMatch, probe.entityTag))
+                throw new EntityTagMismatchException(id, null);
+
+            deleteRequest.setVersion(probe.domainVersion);
+        }
+
+        // Delete the domain, the write result tells if it doesn't exist or if it has another version
+        try {
+            if (!deleteRequest.get().isFound())
+                return false;
+        } catch (RuntimeException e) {
+            if (isVersionConflict(e))
+                throw new EntityTagMismatchException(id, e);
+            throw e;
+        }
+        esOperations.refresh(domainDocument.indexName(), true);
+
+        deleteMessages(id);
+        return true;
+    }
+
     /**
      * Delete a domain and its localized description.
      *
@@ -357,6 +851,166 @@ public class DomainDaoImpl implements DomainDaoCustom {
     /*                                                   Private methods                                              */
     /*----------------------------------------------------------------------------------------------------------------*/
 
+    /**
+     * <p>Probe the entity tag of a domain localized for the output locales, see {@link #findEntityTag(String)},
+     * with the domain document version it's derived from.</p>
+     * <p>The domain document and the description messages are requested concurrently. With their source,
+     * the domain is also localized from the same responses, so that its entity tag matches its content.</p>
+     *
+     * @param id                 The domain identifier
+     * @param languageResolution Resolution of the output locales
+     * @param fetchSource        {@code true} to read and localize the domain, {@code false} to only read versions
+     * @return The future probe, completed with {@code null} if the domain doesn't exist.
+     * The entity tag is {@code null} if the output locales can't be bounded, the domain isn't localized then.
+     */
+    private CompletableFuture<EntityTagProbe> probeEntityTagAsync(final String id,
+                                                                 final LanguageResolution languageResolution,
+                                                                 final boolean fetchSource) {
+
+        // Get the domain document version, and the domain if requested
+        final Document domainDocument = Domain.class.getDeclaredAnnotation(Document.class);
+        final ActionListenerFuture<GetResponse> domainFuture = new ActionListenerFuture<>();
+        esOperations.getClient()
+                .prepareGet(domainDocument.indexName(), domainDocument.type(), id)
+                .setFetchSource(fetchSource)
+                .execute(domainFuture);
+
+        // The messages can't be probed if a wildcard matches any language tag
+        final List<String> candidateTags = languageResolution.getCandidateLanguageTags();
+        if (candidateTags == null)
+            return domainFuture.thenApply(domainResponse ->
+                    domainResponse.isExists() ? new EntityTagProbe(null, domainResponse.getVersion(), Collections.emptyMap(), null) : null);
+
+        // Get the description messages existing for the candidate language tags, with their versions
+        final Document messageDocument = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        final String i18nDomainId = i18nDomainHolder.getDomain().getId();
+        final ActionListenerFuture<MultiGetResponse> messagesFuture = new ActionListenerFuture<>();
+        final MultiGetRequestBuilder multiGetRequest = esOperations.getClient().prepareMultiGet();
+        candidateTags.forEach(languageTag -> multiGetRequest.add(
+                new MultiGetRequest.Item(
+                        messageDocument.indexName(),
+                        messageDocument.type(),
+                        EntityMessage.buildId(i18nDomainId, Domain.DOMAIN_DESCRIPTION_TYPE, id, languageTag))
+                        .fetchSourceContext(new FetchSourceContext(fetchSource))));
+        multiGetRequest.execute(messagesFuture);
+
+        return domainFuture.thenCombine(messagesFuture, (domainResponse, multiGetResponse) -> {
+
+            if (!domainResponse.isExists())
+                return null;
+
+            // Missing messages are also recorded, since creating one of them changes the entity tag
+            final Map<String, GetResponse> messageResponses = new HashMap<>();
+            final Map<String, Long> messageVersions = new HashMap<>();
+            final Iterator<String> candidateTagIterator = candidateTags.iterator();
+            for (MultiGetItemResponse itemResponse : multiGetResponse) {
+                final String languageTag = candidateTagIterator.next();
+                if (itemResponse.isFailed())
+                    continue;
+
+                if (itemResponse.getResponse().isExists()) {
+                    messageResponses.put(languageTag, itemResponse.getResponse());
+                    messageVersions.put(itemResponse.getId(), itemResponse.getResponse().getVersion());
+                } else
+                    messageVersions.put(itemResponse.getId(), null);
+            }
+
+            // Select the description message the same way the domain is localized
+            final GetResponse messageResponse = messageResponses.get(languageResolution.lookup(messageResponses.keySet()));
+
+            final String entityTag = "\"" + DigestUtils.md5DigestAsHex(
+                    String.join("\u0000",
+                            id,
+                            String.valueOf(domainResponse.getVersion()),
+                            (messageResponse == null) ? "" : messageResponse.getId(),
+                            (messageResponse == null) ? "" : String.valueOf(messageResponse.getVersion()),
+                            languageResolution.getContentLanguageTag())
+                            .getBytes(StandardCharsets.UTF_8)) + "\"";
+
+            // Localize the domain from the messages the entity tag is derived from
+            Domain domain = null;
+            if (fetchSource) {
+                final List<EntityMessage> messages = new ArrayList<>(messageResponses.size());
+                for (GetResponse response : messageResponses.values()) {
+                    final EntityMessage message = getResultsMapper().mapResult(response, EntityMessage.class);
+                    message.setVersion(response.getVersion());
+                    messages.add(message);
+                }
+                domain = i18nMessageLocalizer.localize(mapVersionedDomain(domainResponse), messages, languageResolution);
+            }
+
+            return new EntityTagProbe(entityTag, domainResponse.getVersion(), messageVersions, domain);
+        });
+    }
+
+    /**
+     * Indicate if the current entity tag of a domain matches the {@code If-Match} header of a request.
+     * Entity tags are compared with the strong comparison, so weak entity tags never match.
+     *
+     * @param ifMatch   The {@code If-Match} header
+     * @param entityTag The current entity tag, {@code null} if it can't be computed
+     * @return {@code true} if the entity tag or a wildcard is listed in the header
+     */
+    private static boolean matchesEntityTag(final String ifMatch, final String entityTag) {
+
+        for (String clientEntityTag : StringUtils.commaDelimitedListToStringArray(ifMatch)) {
+            clientEntityTag = clientEntityTag.trim();
+            if ("*".equals(clientEntityTag) || clientEntityTag.equals(entityTag))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Map a domain GET response to a domain holding its version.
+     *
+     * @param response The GET response
+     * @return The domain, or {@code null} if it doesn't exist
+     */
+    private Domain mapVersionedDomain(final GetResponse response) {
+
+        if (!response.isExists())
+            return null;
+
+        final Domain domain = getResultsMapper().mapResult(response, Domain.class);
+        domain.setVersion(response.getVersion());
+        return domain;
+    }
+
+    /**
+     * Execute a write, and execute it again on a version conflict if the entity doesn't expect a specific version.
+     * The write is executed at most {@code i18n.message.retryOnConflict} more times, reading the entity again each time.
+     *
+     * @param entity The entity to write
+     * @param write  The write, reading and writing the entity
+     * @return The write result
+     * @throws OptimisticLockingFailureException If the entity expects a specific version, or if the retries are exhausted
+     */
+    private Domain retryOnConflict(final Domain entity, final Supplier<Domain> write) {
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return write.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (entity.getVersion() != null || attempt >= retryOnConflict)
+                    throw e;
+            }
+        }
+    }
+
+    /**
+     * Indicate if a write failed because of the document version.
+     *
+     * @param e The write failure
+     * @return {@code true} if the document has another version, or if it already exists when created
+     */
+    private static boolean isVersionConflict(final RuntimeException e) {
+
+        final Throwable cause = ExceptionsHelper.unwrapCause(e);
+        return cause instanceof VersionConflictEngineException || cause instanceof DocumentAlreadyExistsException;
+    }
+
     /**
      * Get the default Elasticsearch repository implementation. See {@link SimpleElasticsearchRepository}.
      *
@@ -373,70 +1027,52 @@ public class DomainDaoImpl implements DomainDaoCustom {
     }
 
     /**
-     * Apply a localized message to a domain description.
+     * Get the mapper of asynchronous responses to domains, the same the Elasticsearch operations use.
      *
-     * @param domain The un-localized domain
-     * @return The localized domain
+     * @return The results mapper
      */
-    private Domain localizeDescription(Domain domain) {
+    private ResultsMapper getResultsMapper() {
 
-        if (domain == null)
-            return null;
-
-        // Find the list of description messages for the found domain
-        final List<EntityMessage> messages = findMessages(domain.getId());
-
-        // Get the list of available language tags in the message list
-        Collection<Locale> existingLocales = messages.stream()
-                .map(EntityMessage::getLanguageTag)
-                .map(Locale::forLanguageTag)
-                .collect(Collectors.toList());
+        if (resultsMapper == null)
+            resultsMapper = new DefaultResultMapper(esOperations.getElasticsearchConverter().getMappingContext());
 
-        // Get the best matching language tag
-        final Locale lookupLocale = Locale.lookup(threadLocaleHolder.getOutputLocales(), existingLocales);
-        final String lookupTag =
-                (lookupLocale == null) ?
-                        i18nDomainHolder.getDomain().getDefaultLanguageTag() :
-                        lookupLocale.toLanguageTag();
+        return resultsMapper;
+    }
 
-        // Set the domain description for the lookup language tag
-        final Optional<EntityMessage> message = messages.stream()
-                .filter(m -> lookupTag.equals(m.getLanguageTag()))
-                .findFirst();
-        domain.setDescription(message.isPresent() ? message.get().getContent() : null);
+    /**
+     * Build the query finding domains by code.
+     *
+     * @param code The domain code
+     * @return The query
+     */
+    private QueryBuilder buildCodeQuery(final String code) {
 
-        return domain;
+        return QueryBuilders.constantScoreQuery(
+                QueryBuilders.boolQuery()
+                        .must(QueryBuilders.termQuery(Domain.FIELD_CODE.getName(), code)));
     }
 
     /**
-     * Apply a localized message to each description of a domain list..
+     * Apply a localized message to each description of a domain list.
+     * The description messages of all domains are found with a single request.
      *
      * @param domains The list of un-localized domains
      * @return The localized domains
      */
-    private Iterable<Domain> localizeDescriptions(Iterable<Domain> domains) {
-
-        if (domains == null)
-            return null;
-
-        domains.forEach(domain -> localizeDescription(Domain.class.cast(domain)));
-
-        return domains;
+    private <T extends Iterable<Domain>> T localizeDescriptions(T domains) {
+        return i18nMessageLocalizer.localize(domains);
     }
 
     /**
      * Replace the domain description's literal value by a message type.
+     * The domain is left unchanged, the message type is set on its persisted view.
      *
      * @param domain Domain for which the description must be replaced
-     * @return The updated domain and the extracted description
+     * @return The persisted view of the domain and the extracted description
      */
     private Pair<Domain, String> updateDescription(final Domain domain) {
 
-        Domain domainToUpdate = kryo.copy(domain);
-        final String descriptionContent = domainToUpdate.getDescription();
-        domainToUpdate.setDescription(Domain.DOMAIN_DESCRIPTION_TYPE);
-
-        return new ImmutablePair<>(domainToUpdate, descriptionContent);
+        return new ImmutablePair<>(domain.toPersistedView(), domain.getDescription());
     }
 
     /**
@@ -447,68 +1083,89 @@ public class DomainDaoImpl implements DomainDaoCustom {
      */
     private Domain findExistingDomain(final Domain domain) {
 
-        final Domain existingDomain;
         if (domain.getId() == null)
-            existingDomain = null;
-        else {
-            GetQuery getQuery = new GetQuery();
-            getQuery.setId(domain.getId());
-            existingDomain = esOperations.queryForObject(getQuery, Domain.class);
+            return null;
+
+        final Document domainDocument = Domain.class.getDeclaredAnnotation(Document.class);
+        return mapVersionedDomain(esOperations.getClient()
+                .prepareGet(domainDocument.indexName(), domainDocument.type(), domain.getId())
+                .get());
+    }
+
+    /**
+     * Find existing domains with their versions, with a single multi-get request.
+     *
+     * @param domains The domains, with or without identifier
+     * @return The existing domains found, by identifier
+     */
+    private Map<String, Domain> findExistingDomains(final Collection<Domain> domains) {
+
+        final List<String> domainIds = domains.stream()
+                .map(Domain::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (domainIds.isEmpty())
+            return Collections.emptyMap();
+
+        final Document domainDocument = Domain.class.getDeclaredAnnotation(Document.class);
+        final MultiGetRequestBuilder multiGetRequest = esOperations.getClient().prepareMultiGet();
+        domainIds.forEach(domainId -> multiGetRequest.add(domainDocument.indexName(), domainDocument.type(), domainId));
+
+        final Map<String, Domain> existingDomainsById = new HashMap<>();
+        for (MultiGetItemResponse item : multiGetRequest.get().getResponses()) {
+            if (item.isFailed())
+                throw new ElasticsearchException("failed to get the domain [id: " + item.getId() + "]: " + item.getFailure().getMessage());
+
+            final Domain existingDomain = mapVersionedDomain(item.getResponse());
+            if (existingDomain != null)
+                existingDomainsById.put(existingDomain.getId(), existingDomain);
         }
 
-        return existingDomain;
+        return existingDomainsById;
     }
 
     /**
-     * Insert a new message in the index for the default language of the I18N domain.
+     * Build a new message for the default language of the I18N domain.
      *
      * @param domainId           The domain identifier the message depend on
      * @param descriptionContent The description content to set on the message
+     * @return The built message
      */
-    private void insertInitialMessage(final String domainId, final String descriptionContent) {
+    private EntityMessage buildInitialMessage(final String domainId, final String descriptionContent) {
 
-        indexMessage(
-                buildMessage(
-                        i18nDomainHolder.getDomain().getDefaultLanguageTag(),
-                        domainId,
-                        descriptionContent));
+        return buildMessage(
+                i18nDomainHolder.getDomain().getDefaultLanguageTag(),
+                domainId,
+                descriptionContent);
     }
 
     /**
-     * <p>Insert a message if it doesn't exist for the input locale, else update the existing message.</p>
+     * <p>Build a message for the input locale. As its identifier is derived from its key, saving it inserts the message
+     * if it doesn't exist for the input locale, else updates the existing message.</p>
      * <p>A complex input locale (with data other than language) may be inserted only if a message already exists
-     * for the simple language.</p>
+     * for the simple language, see {@link #checkLocaleForDomainUpdate(Domain, Collection)}.</p>
      *
      * @param domainId           The existing domain identifier the message depends on
      * @param descriptionContent The description content to set on the message
+     * @return The message to save
      */
-    private void insertOrUpdateMessage(final String domainId, final String descriptionContent) {
-
-        // Get the message for the input locale
-        EntityMessage messageForInputLocale = getDomainDescriptionForInputLocale(domainId);
+    private EntityMessage buildInputMessage(final String domainId, final String descriptionContent) {
 
-        // Insert a message for the input locale
-        if (messageForInputLocale == null) {
-            indexMessage(
-                    buildMessage(
-                            threadLocaleHolder.getInputLocale().toLanguageTag(),
-                            domainId,
-                            descriptionContent));
-        }
-        // Update message for the input locale
-        else {
-            messageForInputLocale.setContent(descriptionContent);
-            indexMessage(messageForInputLocale);
-        }
+        return buildMessage(
+                threadLocaleHolder.getInputLocale().toLanguageTag(),
+                domainId,
+                descriptionContent);
     }
 
     /**
      * <p>Check an input locale is supported by the I18N domain.</p>
      * <p>Check a message already exists for a simple language if an input locale has a complex language tag.</p>
      *
-     * @param domain The domain to update
+     * @param domain        The domain to update
+     * @param inputMessages The domain description's messages for the input locale
      */
-    private void checkLocaleForDomainUpdate(Domain domain) {
+    private void checkLocaleForDomainUpdate(Domain domain, Collection<EntityMessage> inputMessages) {
 
         // Nothing to check on a null domain
         if (domain == null)
@@ -519,10 +1176,10 @@ public class DomainDaoImpl implements DomainDaoCustom {
         checkSupportedLocale(inputLocale);
 
         // No message for the input locale
-        if (getDomainDescriptionForInputLocale(domain.getId()) == null) {
+        if (!findMessage(inputMessages, inputLocale.toLanguageTag()).isPresent()) {
 
             // Error when the input locale has a complex language tag and no message already exists for the simple language
-            if (!hasInputLocaleSimpleLanguage() && !existDomainDescriptionForSimpleLanguage(domain.getId()))
+            if (!hasInputLocaleSimpleLanguage() && !findMessage(inputMessages, inputLocale.getLanguage()).isPresent())
                 throw new MissingSimpleMessageException(inputLocale, domain.getId());
         }
     }
@@ -540,16 +1197,16 @@ public class DomainDaoImpl implements DomainDaoCustom {
     }
 
     /**
-     * Get the domain description's message for the input locale.
+     * Get the language tags of the input locale a domain description's message may exist for:
+     * the complete language tag and its simple language.
      *
-     * @param domainId The domain identifier
-     * @return The found message for the domain description or {@code null}
+     * @return The input language tags
      */
-    private EntityMessage getDomainDescriptionForInputLocale(final String domainId) {
+    private Set<String> getInputLanguageTags() {
 
-        return findMessage(
-                domainId,
-                threadLocaleHolder.getInputLocale().toLanguageTag());
+        final Locale inputLocale = threadLocaleHolder.getInputLocale();
+
+        return new LinkedHashSet<>(Arrays.asList(inputLocale.toLanguageTag(), inputLocale.getLanguage()));
     }
 
     /**
@@ -564,19 +1221,6 @@ public class DomainDaoImpl implements DomainDaoCustom {
         return inputLocale.toLanguageTag().equals(inputLocale.getLanguage());
     }
 
-    /**
-     * Check if a domain description exists for the language of the input locale.
-     *
-     * @param domainId The domain identifier
-     * @return {@code true} if the domain description exists else {@code false}
-     */
-    private boolean existDomainDescriptionForSimpleLanguage(final String domainId) {
-
-        return findMessage(
-                domainId,
-                threadLocaleHolder.getInputLocale().getLanguage()) != null;
-    }
-
     /**
      * Build a message for the domain's description.
      *
@@ -589,6 +1233,8 @@ public class DomainDaoImpl implements DomainDaoCustom {
 
         EntityMessage message = new EntityMessage();
 
+        // Message identifier derived from the I18N domain identifier, the message type, the domain identifier and the language tag
+        message.setId(EntityMessage.buildId(i18nDomainHolder.getDomain().getId(), Domain.DOMAIN_DESCRIPTION_TYPE, domainId, languageTag));
         // I18n message domain identifier
         message.setDomainId(i18nDomainHolder.getDomain().getId());
         // Message type
@@ -604,55 +1250,328 @@ public class DomainDaoImpl implements DomainDaoCustom {
     }
 
     /**
-     * Find the message for a domain description that matches a domain identifier and a language tag.
+     * Find the message matching a language tag in a list of domain description's messages.
      *
-     * @param domainId    Identifier of the domain
+     * @param messages    The messages of a domain description
      * @param languageTag Language tag
-     * @return The found message or {@code null}
+     * @return The found message
      */
-    private EntityMessage findMessage(final String domainId, final String languageTag) {
+    private Optional<EntityMessage> findMessage(final Collection<EntityMessage> messages, final String languageTag) {
 
-        return new EntityMessageDaoImpl(esOperations).findOne(
-                i18nDomainHolder.getDomain().getId(),
-                Domain.DOMAIN_DESCRIPTION_TYPE,
-                domainId,
-                languageTag
-        );
+        return messages.stream()
+                .filter(message -> languageTag.equals(message.getLanguageTag()))
+                .findFirst();
     }
 
     /**
-     * Find the list of messages for a domain description that matches a domain identifier.
+     * Get the messages for the descriptions of a set of domains and language tags with a single multi-get request.
+     * Message identifiers are derived from domain identifiers and language tags,
+     * so that messages are read in realtime without waiting for an index refresh.
      *
-     * @param domainId Identifier of the domain
-     * @return The found list of messages
+     * @param domainIds    Identifiers of the domains
+     * @param languageTags Language tags the messages must match
+     * @return The existing messages
      */
-    private List<EntityMessage> findMessages(final String domainId) {
+    private List<EntityMessage> getMessages(final Collection<String> domainIds, final Collection<String> languageTags) {
+
+        final String i18nDomainId = i18nDomainHolder.getDomain().getId();
+        final List<String> messageIds = new ArrayList<>(domainIds.size() * languageTags.size());
+        for (String domainId : domainIds)
+            for (String languageTag : languageTags)
+                messageIds.add(EntityMessage.buildId(i18nDomainId, Domain.DOMAIN_DESCRIPTION_TYPE, domainId, languageTag));
+
+        if (messageIds.isEmpty())
+            return new ArrayList<>();
+
+        final Document messageDocument = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        final MultiGetRequestBuilder multiGetRequest = esOperations.getClient().prepareMultiGet();
+        messageIds.forEach(messageId -> multiGetRequest.add(messageDocument.indexName(), messageDocument.type(), messageId));
+        final MultiGetResponse response = multiGetRequest.get();
+
+        final List<EntityMessage> messages = new ArrayList<>(messageIds.size());
+        for (MultiGetItemResponse item : response.getResponses()) {
+            if (item.isFailed() || !item.getResponse().isExists())
+                continue;
+
+            // A document holding other data than its identifier is derived from isn't the requested message
+            final EntityMessage message = getResultsMapper().mapResult(item.getResponse(), EntityMessage.class);
+            if (!item.getId().equals(EntityMessage.buildId(message.getDomainId(), message.getType(), message.getEntityId(), message.getLanguageTag())))
+                continue;
+
+            message.setVersion(item.getResponse().getVersion());
+            messages.add(message);
+        }
 
-        return esOperations.queryForList(
-                new NativeSearchQueryBuilder()
-                        .withQuery(
-                                QueryBuilders.constantScoreQuery(
-                                        QueryBuilders.boolQuery()
-                                                .must(QueryBuilders.termQuery(EntityMessage.FIELD_DOMAIN_ID.getName(), i18nDomainHolder.getDomain().getId()))
-                                                .must(QueryBuilders.termQuery(EntityMessage.FIELD_TYPE.getName(), Domain.DOMAIN_DESCRIPTION_TYPE))
-                                                .must(QueryBuilders.termQuery(EntityMessage.FIELD_ENTITY_ID.getName(), domainId))))
-                        .build(), EntityMessage.class);
+        return messages;
+    }
+
+    /**
+     * Create or update a domain.
+     * A domain with a version is only written if it still has this version, a domain without version is only
+     * written if it doesn't exist yet.
+     * The index is refreshed depending on the refresh policy of messages.
+     *
+     * @param domain The domain to save
+     * @return The saved domain, with its new version
+     * @throws OptimisticLockingFailureException If the domain has been modified or created concurrently
+     */
+    private Domain indexDomain(final Domain domain) {
+
+        if (domain.getId() == null)
+            domain.setId(newDocumentId());
+
+        final Document domainDocument = Domain.class.getDeclaredAnnotation(Document.class);
+        final IndexRequestBuilder indexRequest = esOperations.getClient()
+                .prepareIndex(domainDocument.indexName(), domainDocument.type(), domain.getId())
+                .setSource(toSource(domain));
+        if (domain.getVersion() != null)
+            indexRequest.setVersion(domain.getVersion());
+        else
+            indexRequest.setOpType(IndexRequest.OpType.CREATE);
+
+        try {
+            domain.setVersion(indexRequest.get().getVersion());
+        } catch (RuntimeException e) {
+            if (isVersionConflict(e))
+                throw new OptimisticLockingFailureException("The domain " + domain.getId() + " has been modified concurrently", e);
+            throw e;
+        }
+
+        return domain;
+    }
+
+    /**
+     * Save the description of a saved domain in the message's index type, then set back its literal value.
+     * On creation, the message is saved for the default language of the I18N domain.
+     * On update, the message is saved for the input locale only, on condition that it wasn't modified since it was read.
+     *
+     * @param resultDomain       The saved domain
+     * @param descriptionContent The description's literal value
+     * @param created            {@code true} if the domain is created, {@code false} if it's updated
+     * @param inputMessages      The description's messages for the input locale read before the update, with their versions
+     * @return The saved domain with its description
+     * @throws OptimisticLockingFailureException If the message has been modified concurrently
+     */
+    private Domain saveDescription(final Domain resultDomain,
+                                   final String descriptionContent,
+                                   final boolean created,
+                                   final Collection<EntityMessage> inputMessages) {
+
+        if (created)
+            indexMessage(buildInitialMessage(resultDomain.getId(), descriptionContent), false);
+        else {
+            final EntityMessage inputMessage = buildInputMessage(resultDomain.getId(), descriptionContent);
+            findMessage(inputMessages, inputMessage.getLanguageTag())
+                    .ifPresent(message -> inputMessage.setVersion(message.getVersion()));
+            indexMessage(inputMessage, true);
+        }
+
+        // Make the domain and its message available for search
+        if (refreshPolicy == RefreshPolicy.DEFERRED)
+            refreshIndex();
+
+        // Take changes of the I18N domain into account
+        reloadI18nDomain(Collections.singletonList(resultDomain));
+
+        // Set back the localized domain description
+        resultDomain.setDescription(descriptionContent);
+
+        return resultDomain;
+    }
+
+    /**
+     * Map a document to its source, the same way the Elasticsearch operations do.
+     *
+     * @param document The domain or message
+     * @return The document source
+     */
+    private String toSource(final Object document) {
+
+        try {
+            return getResultsMapper().getEntityMapper().mapToString(document);
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to map the document [id: " + getDocumentId(document) + "]", e);
+        }
+    }
+
+    /**
+     * <p>Create or update a list of documents with bulk requests of at most {@link #bulkSize} documents.
+     * The documents must have an identifier, the written ones get their new version.
+     * The index is not refreshed.</p>
+     * <p>A conditional write of a document with a version only succeeds if the document still has this version,
+     * and a conditional write of a document without version only succeeds if the document doesn't exist yet,
+     * as for a single document, see {@link #indexDomain(Domain)} and {@link #indexMessage(EntityMessage, boolean)}.
+     * Version conflicts are reported as failures of the conflicting documents.</p>
+     *
+     * @param documents   The domains or messages to save
+     * @param conditional {@code true} if the documents are written on condition of their version
+     * @return The error messages of the documents that failed to be written, by document identifier
+     */
+    private Map<String, String> bulkIndex(final List<?> documents, final boolean conditional) {
+
+        final Map<String, String> failedDocuments = new LinkedHashMap<>();
+        for (int fromIndex = 0; fromIndex < documents.size(); fromIndex += bulkSize) {
+
+            final List<?> batch = documents.subList(fromIndex, Math.min(fromIndex + bulkSize, documents.size()));
+            final BulkRequestBuilder bulkRequest = esOperations.getClient().prepareBulk();
+            for (Object document : batch) {
+
+                final Document annotation = document.getClass().getDeclaredAnnotation(Document.class);
+                final IndexRequestBuilder indexRequest = esOperations.getClient()
+                        .prepareIndex(annotation.indexName(), annotation.type(), getDocumentId(document))
+                        .setSource(toSource(document));
+                final Long version = getDocumentVersion(document);
+                if (conditional && version != null)
+                    indexRequest.setVersion(version);
+                else if (conditional)
+                    indexRequest.setOpType(IndexRequest.OpType.CREATE);
+
+                bulkRequest.add(indexRequest);
+            }
+
+            // Go on with next bulk requests on failures
+            final BulkResponse bulkResponse;
+            try {
+                bulkResponse = bulkRequest.get();
+            } catch (RuntimeException e) {
+                batch.forEach(document -> failedDocuments.put(getDocumentId(document), e.getMessage()));
+                continue;
+            }
+            for (BulkItemResponse item : bulkResponse.getItems()) {
+                if (item.isFailed())
+                    failedDocuments.put(item.getId(), item.getFailureMessage());
+                else
+                    setDocumentVersion(batch.get(item.getItemId()), item.getVersion());
+            }
+        }
+
+        return failedDocuments;
+    }
+
+    /**
+     * Cache a message saved by a bulk request, or invalidate its cached entry if it failed to be written,
+     * as the write may have failed on a concurrent modification.
+     *
+     * @param message         The message to cache
+     * @param failedDocuments The error messages of the documents that failed to be written, by document identifier
+     */
+    private void cacheSavedMessage(final EntityMessage message, final Map<String, String> failedDocuments) {
+
+        if (failedDocuments.containsKey(message.getId()))
+            entityMessageCache.invalidate(EntityMessageKey.of(message));
+        else
+            entityMessageCache.put(message);
+    }
+
+    /**
+     * Get the identifier of a domain or a message.
+     *
+     * @param document The domain or message
+     * @return The document identifier
+     */
+    private String getDocumentId(final Object document) {
+
+        return (document instanceof Domain) ?
+                Domain.class.cast(document).getId() :
+                EntityMessage.class.cast(document).getId();
+    }
+
+    /**
+     * Get the version of a domain or a message.
+     *
+     * @param document The domain or message
+     * @return The document version, {@code null} if unknown
+     */
+    private Long getDocumentVersion(final Object document) {
+
+        return (document instanceof Domain) ?
+                Domain.class.cast(document).getVersion() :
+                EntityMessage.class.cast(document).getVersion();
+    }
+
+    /**
+     * Set the version of a domain or a message.
+     *
+     * @param document The domain or message
+     * @param version  The document version
+     */
+    private void setDocumentVersion(final Object document, final long version) {
+
+        if (document instanceof Domain)
+            Domain.class.cast(document).setVersion(version);
+        else
+            EntityMessage.class.cast(document).setVersion(version);
+    }
+
+    /**
+     * Generate an identifier for a new document.
+     *
+     * @return The generated identifier
+     */
+    private String newDocumentId() {
+        return UUID.randomUUID().toString();
     }
 
     /**
      * Create or update a message.
+     * A conditional write of a message with a version only succeeds if the message still has this version,
+     * and a conditional write of a message without version only succeeds if the message doesn't exist yet.
+     * With an immediate refresh policy, the message is made available for search before returning.
+     * Otherwise, it's readable through the message cache until the index is refreshed.
      *
-     * @param message the message to save
+     * @param message     the message to save
+     * @param conditional {@code true} if the message is written on condition of its version
+     * @throws OptimisticLockingFailureException If a conditionally written message has been modified concurrently
      */
-    private void indexMessage(final EntityMessage message) {
+    private void indexMessage(final EntityMessage message, final boolean conditional) {
 
         // Index the message
-        IndexQuery indexQuery = new IndexQuery();
-        indexQuery.setObject(message);
-        indexQuery.setId(message.getId());
-        esOperations.index(indexQuery);
+        final Document messageDocument = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        final IndexRequestBuilder indexRequest = esOperations.getClient()
+                .prepareIndex(messageDocument.indexName(), messageDocument.type(), message.getId())
+                .setSource(toSource(message));
+        if (conditional && message.getVersion() != null)
+            indexRequest.setVersion(message.getVersion());
+        else if (conditional)
+            indexRequest.setOpType(IndexRequest.OpType.CREATE);
+
+        try {
+            message.setVersion(indexRequest.get().getVersion());
+        } catch (RuntimeException e) {
+            if (!isVersionConflict(e))
+                throw e;
+
+            // The cached message is stale
+            entityMessageCache.invalidate(EntityMessageKey.of(message));
+            throw new OptimisticLockingFailureException("The message " + message.getId() + " has been modified concurrently", e);
+        }
+
+        // Replace the cached message
+        entityMessageCache.put(message);
+
+        if (refreshPolicy == RefreshPolicy.IMMEDIATE)
+            refreshIndex();
+    }
 
-        // Refresh the message (make it available for search). Write down that the refresh(Class<?>) version doesn't work.
+    /**
+     * Reload the I18N domain if it's among saved domains, so that changes to its languages are taken into account
+     * without a restart.
+     *
+     * @param savedDomains The saved domains
+     */
+    private void reloadI18nDomain(final Collection<Domain> savedDomains) {
+
+        final String i18nDomainId = i18nDomainHolder.getDomain().getId();
+        if (savedDomains.stream().anyMatch(domain -> i18nDomainId.equals(domain.getId())))
+            i18nDomainHolder.reload();
+    }
+
+    /**
+     * Refresh the index holding domains and messages (make them available for search).
+     */
+    private void refreshIndex() {
+
+        // Write down that the refresh(Class<?>) version doesn't work.
         esOperations.refresh(EntityMessage.class.getDeclaredAnnotation(Document.class).indexName(), true);
     }
 
@@ -663,6 +1582,7 @@ public class DomainDaoImpl implements DomainDaoCustom {
      */
     private void deleteMessages(final String domainId) {
 
+        entityMessageCache.invalidateEntity(i18nDomainHolder.getDomain().getId(), domainId);
         deleteMessages(
                 QueryBuilders.constantScoreQuery(
                         QueryBuilders.boolQuery()
@@ -677,6 +1597,7 @@ public class DomainDaoImpl implements DomainDaoCustom {
      */
     private void deleteMessages(final Collection<String> domainIds) {
 
+        entityMessageCache.invalidateEntities(i18nDomainHolder.getDomain().getId(), domainIds);
         deleteMessages(
                 QueryBuilders.constantScoreQuery(
                         QueryBuilders.boolQuery()
@@ -689,6 +1610,7 @@ public class DomainDaoImpl implements DomainDaoCustom {
      */
     private void deleteMessages() {
 
+        entityMessageCache.invalidateDomain(i18nDomainHolder.getDomain().getId());
         deleteMessages(
                 QueryBuilders.constantScoreQuery(
                         QueryBuilders.boolQuery()
@@ -706,4 +1628,50 @@ public class DomainDaoImpl implements DomainDaoCustom {
         deleteQuery.setQuery(queryBuilder);
         esOperations.delete(deleteQuery, EntityMessage.class);
     }
+
+
+    /**
+     * Entity tag of a domain, with the domain and message document versions it's derived from.
+     */
+    private static class EntityTagProbe {
+
+        /**
+         * Entity tag of the domain, {@code null} if the output locales can't be bounded
+         */
+        private final String entityTag;
+
+        /**
+         * Version of the domain document
+         */
+        private final long domainVersion;
+
+        /**
+         * Versions of the description messages for the candidate language tags by identifier, {@code null} if missing
+         */
+        private final Map<String, Long> messageVersions;
+
+        /**
+         * Domain localized from the responses the entity tag is derived from, {@code null} if the domain source isn't read
+         */
+        private final Domain domain;
+
+        /**
+         * Constructor with entity tag, document versions and domain.
+         *
+         * @param entityTag       Entity tag of the domain
+         * @param domainVersion   Version of the domain document
+         * @param messageVersions Versions of the description messages by identifier
+         * @param domain          Localized domain
+         */
+        private EntityTagProbe(final String entityTag,
+                               final long domainVersion,
+                               final Map<String, Long> messageVersions,
+                               final Domain domain) {
+
+            this.entityTag = entityTag;
+            this.domainVersion = domainVersion;
+            this.messageVersions = messageVersions;
+            this.domain = domain;
+        }
+    }
 }
@@ -1,15 +1,35 @@
 package info.jallaix.message.dao.impl;
 
 import info.jallaix.message.bean.EntityMessage;
+import info.jallaix.message.dao.DocumentScanner;
 import info.jallaix.message.dao.EntityMessageDaoCustom;
+import info.jallaix.message.dao.cache.EntityMessageCache;
+import info.jallaix.message.dao.cache.EntityMessageKey;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.index.query.BoolFilterBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
-import org.elasticsearch.index.query.QueryBuilders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.ElasticsearchException;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.DefaultResultMapper;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.ResultsMapper;
+import org.springframework.data.elasticsearch.core.query.GetQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.data.elasticsearch.repository.support.ElasticsearchRepositoryFactory;
+import org.springframework.data.elasticsearch.repository.support.SimpleElasticsearchRepository;
+import org.springframework.util.Assert;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.elasticsearch.index.query.FilterBuilders.boolFilter;
 import static org.elasticsearch.index.query.FilterBuilders.termFilter;
@@ -26,6 +46,22 @@ public class EntityMessageDaoImpl implements EntityMessageDaoCustom {
     @Autowired
     private ElasticsearchOperations operations;
 
+    /**
+     * Cache of entity messages
+     */
+    @Autowired(required = false)
+    private EntityMessageCache cache;
+
+    /**
+     * Default Elasticsearch repository used to delete messages
+     */
+    private ElasticsearchRepository<EntityMessage, String> esRepository;
+
+    /**
+     * Mapper of client responses to messages
+     */
+    private ResultsMapper resultsMapper;
+
 
     /**
      * Empty constructor
@@ -42,9 +78,21 @@ public class EntityMessageDaoImpl implements EntityMessageDaoCustom {
         this.operations = operations;
     }
 
+    /**
+     * Constructor with operations and cache
+     *
+     * @param operations Elasticsearch operations
+     * @param cache      Cache of entity messages
+     */
+    public EntityMessageDaoImpl(ElasticsearchOperations operations, EntityMessageCache cache) {
+        this.operations = operations;
+        this.cache = cache;
+    }
+
 
     /**
      * Find a message for the specified arguments.
+     * A document found under the derived identifier but holding other data isn't returned.
      *
      * @param domainId    Domain identifier to filter messages
      * @param type        Type to filter messages
@@ -55,24 +103,151 @@ public class EntityMessageDaoImpl implements EntityMessageDaoCustom {
     @Override
     public EntityMessage findOne(final String domainId, final String type, final String entityId, final String languageTag) {
 
-        // Define the filter
-        final List<EntityMessage> messages = operations.queryForList(
-                new NativeSearchQueryBuilder()
-                        .withQuery(
-                                QueryBuilders.constantScoreQuery(
-                                        QueryBuilders.boolQuery()
-                                                .must(QueryBuilders.termQuery(EntityMessage.FIELD_DOMAIN_ID.getName(), domainId))
-                                                .must(QueryBuilders.termQuery(EntityMessage.FIELD_TYPE.getName(), type))
-                                                .must(QueryBuilders.termQuery(EntityMessage.FIELD_ENTITY_ID.getName(), entityId))
-                                                .must(QueryBuilders.termQuery(EntityMessage.FIELD_LANGUAGE_TAG.getName(), languageTag))))
-                        .build(), EntityMessage.class);
+        // Get the cached message, or nothing if the message is known to be missing
+        final EntityMessageKey key = new EntityMessageKey(domainId, type, entityId, languageTag);
+        if (cache != null) {
+            final EntityMessageCache.Lookup lookup = cache.lookup(key);
+            if (!lookup.isAbsent())
+                return lookup.getMessage();
+        }
+
+        // Get the message and its version by its identifier derived from the arguments (realtime, no refresh needed)
+        final Document messageDocument = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        final GetResponse response = operations.getClient()
+                .prepareGet(messageDocument.indexName(), messageDocument.type(), EntityMessage.buildId(domainId, type, entityId, languageTag))
+                .get();
+        EntityMessage message = null;
+        if (response.isExists()) {
+            message = getResultsMapper().mapResult(response, EntityMessage.class);
+            message.setVersion(response.getVersion());
+        }
+        if (message != null && !key.equals(EntityMessageKey.of(message)))
+            message = null;
+
+        // Cache the found message, or remember it's missing
+        return (cache == null) ? message : cache.merge(key, message);
+    }
+
+    /**
+     * Save a message under the identifier derived from its domain identifier, type, entity identifier and language tag,
+     * so that it can be read by identifier. If the message had another identifier, the document indexed under
+     * this identifier is deleted, so that a message whose data changed isn't found twice.
+     * The saved message is cached with its new version, as the index may be read before the next refresh.
+     *
+     * @param entity The message to save
+     * @return The message saved
+     */
+    @SuppressWarnings("unused")
+    public EntityMessage save(EntityMessage entity) {
+
+        Assert.notNull(entity, "Cannot save 'null' entity.");
+
+        final String formerId = entity.getId();
+        entity.setVersion(newIndexRequest(entity).get().getVersion());
+        deleteFormerDocument(formerId, entity.getId());
+        refreshIndex();
+        cacheMessage(entity);
+
+        return entity;
+    }
+
+    /**
+     * Save a list of messages with a single bulk request, under the identifiers derived from their data.
+     * Documents indexed under former identifiers of the messages are deleted, and the saved messages are cached
+     * with their new versions.
+     *
+     * @param entities The messages to save
+     * @return The messages saved
+     * @throws ElasticsearchException If some messages failed to be written
+     */
+    @SuppressWarnings("unused")
+    public Iterable<EntityMessage> save(Iterable<EntityMessage> entities) {
+
+        Assert.notNull(entities, "Cannot insert 'null' as a List.");
+
+        final List<String> formerIds = new ArrayList<>();
+        final List<EntityMessage> messages = new ArrayList<>();
+        final BulkRequestBuilder bulkRequest = operations.getClient().prepareBulk();
+        for (EntityMessage entity : entities) {
+            formerIds.add(entity.getId());
+            messages.add(entity);
+            bulkRequest.add(newIndexRequest(entity));
+        }
+        if (!messages.isEmpty()) {
+
+            // Set the new versions of the written messages
+            final Map<String, String> failedDocuments = new LinkedHashMap<>();
+            for (BulkItemResponse item : bulkRequest.get().getItems()) {
+                if (item.isFailed())
+                    failedDocuments.put(item.getId(), item.getFailureMessage());
+                else
+                    messages.get(item.getItemId()).setVersion(item.getVersion());
+            }
+            if (!failedDocuments.isEmpty())
+                throw new ElasticsearchException(
+                        "Bulk indexing has failures. Use ElasticsearchException.getFailedDocuments() for detailed messages [" + failedDocuments + "]",
+                        failedDocuments);
+
+            int i = 0;
+            for (EntityMessage entity : entities)
+                deleteFormerDocument(formerIds.get(i++), entity.getId());
+            refreshIndex();
+            entities.forEach(this::cacheMessage);
+        }
+
+        return entities;
+    }
+
+    /**
+     * Delete a message by identifier.
+     * The message is read before it's deleted, so that it can be removed from the cache.
+     *
+     * @param id The message identifier
+     */
+    @SuppressWarnings("unused")
+    public void delete(String id) {
+
+        final EntityMessage message = (cache == null) ? null : operations.queryForObject(newGetQuery(id), EntityMessage.class);
+        getElasticsearchRepository().delete(id);
+        if (message != null)
+            cache.invalidate(EntityMessageKey.of(message));
+    }
+
+    /**
+     * Delete a message.
+     *
+     * @param entity The message to delete
+     */
+    @SuppressWarnings("unused")
+    public void delete(EntityMessage entity) {
+
+        getElasticsearchRepository().delete(entity);
+        if (cache != null && entity != null)
+            cache.invalidate(EntityMessageKey.of(entity));
+    }
+
+    /**
+     * Delete a list of messages.
+     *
+     * @param entities The messages to delete
+     */
+    @SuppressWarnings("unused")
+    public void delete(Iterable<? extends EntityMessage> entities) {
+
+        getElasticsearchRepository().delete(entities);
+        if (cache != null && entities != null)
+            entities.forEach(entity -> cache.invalidate(EntityMessageKey.of(entity)));
+    }
 
-        if (messages.isEmpty())
-            return null;
-        else if (messages.size() > 1)
-            throw new RuntimeException("At most one message should be found given the criteria.");
-        else
-            return messages.get(0);
+    /**
+     * Delete all messages.
+     */
+    @SuppressWarnings("unused")
+    public void deleteAll() {
+
+        getElasticsearchRepository().deleteAll();
+        if (cache != null)
+            cache.clear();
     }
 
     /**
@@ -112,4 +287,119 @@ public class EntityMessageDaoImpl implements EntityMessageDaoCustom {
                         .build(),
                 EntityMessage.class);
     }
+
+    /**
+     * Pass each message of a domain to an action, scrolling through the messages page by page,
+     * so that large domains are fully read with a single page held in memory.
+     *
+     * @param domainId The domain identifier the messages must match
+     * @param action   The action to perform on each message
+     */
+    @Override
+    public void forEachByDomainId(final String domainId, final Consumer<? super EntityMessage> action) {
+
+        DocumentScanner.scan(
+                operations,
+                constantScoreQuery(termQuery(EntityMessage.FIELD_DOMAIN_ID.getName(), domainId)),
+                EntityMessage.class,
+                action);
+    }
+
+
+    /*----------------------------------------------------------------------------------------------------------------*/
+    /*                                                   Private methods                                              */
+    /*----------------------------------------------------------------------------------------------------------------*/
+
+    /**
+     * Build the request indexing a message, after deriving its identifier from its data.
+     * The message is indexed without version, so that it's never written with external versioning.
+     *
+     * @param message The message to index
+     * @return The index request
+     */
+    private IndexRequestBuilder newIndexRequest(final EntityMessage message) {
+
+        message.setId(EntityMessage.buildId(message.getDomainId(), message.getType(), message.getEntityId(), message.getLanguageTag()));
+
+        final Document messageDocument = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        try {
+            return operations.getClient()
+                    .prepareIndex(messageDocument.indexName(), messageDocument.type(), message.getId())
+                    .setSource(getResultsMapper().getEntityMapper().mapToString(message));
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to map the message [id: " + message.getId() + "]", e);
+        }
+    }
+
+    /**
+     * Delete the document a message was indexed under before its identifier was derived.
+     *
+     * @param formerId  The former identifier of the message, {@code null} if it had none
+     * @param derivedId The derived identifier of the message
+     */
+    private void deleteFormerDocument(final String formerId, final String derivedId) {
+
+        if (formerId != null && !formerId.equals(derivedId))
+            delete(formerId);
+    }
+
+    /**
+     * Cache a saved message, if a cache is available.
+     *
+     * @param message The saved message
+     */
+    private void cacheMessage(final EntityMessage message) {
+
+        if (cache != null)
+            cache.put(message);
+    }
+
+    /**
+     * Build the query getting a message by identifier.
+     *
+     * @param id The message identifier
+     * @return The get query
+     */
+    private static GetQuery newGetQuery(final String id) {
+
+        GetQuery getQuery = new GetQuery();
+        getQuery.setId(id);
+
+        return getQuery;
+    }
+
+    /**
+     * Get the mapper of client responses to messages.
+     *
+     * @return The results mapper
+     */
+    private ResultsMapper getResultsMapper() {
+
+        if (resultsMapper == null)
+            resultsMapper = new DefaultResultMapper(operations.getElasticsearchConverter().getMappingContext());
+
+        return resultsMapper;
+    }
+
+    /**
+     * Get the default Elasticsearch repository.
+     *
+     * @return The default Elasticsearch repository
+     */
+    private ElasticsearchRepository<EntityMessage, String> getElasticsearchRepository() {
+
+        if (esRepository == null)
+            esRepository = new SimpleElasticsearchRepository<>(
+                    new ElasticsearchRepositoryFactory(operations).getEntityInformation(EntityMessage.class),
+                    operations);
+
+        return esRepository;
+    }
+
+    /**
+     * Refresh the message index, so that saved messages are searchable.
+     */
+    private void refreshIndex() {
+        operations.refresh(EntityMessage.class.getDeclaredAnnotation(Document.class).indexName(), true);
+    }
 }
@@ -1,15 +1,30 @@
 package info.jallaix.message.dao.impl;
 
+import info.jallaix.message.bean.Domain;
 import info.jallaix.message.bean.KeyMessage;
+import info.jallaix.message.dao.DocumentScanner;
 import info.jallaix.message.dao.KeyMessageDaoCustom;
+import info.jallaix.message.dao.bundle.MessageBundle;
+import info.jallaix.message.dao.bundle.MessageBundleCache;
+import info.jallaix.message.dao.bundle.MessageBundleSnapshot;
 import org.elasticsearch.index.query.BoolFilterBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.GetQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.data.elasticsearch.repository.support.ElasticsearchRepositoryFactory;
+import org.springframework.data.elasticsearch.repository.support.SimpleElasticsearchRepository;
+import org.springframework.util.Assert;
 
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.FilterBuilders.boolFilter;
 import static org.elasticsearch.index.query.FilterBuilders.termFilter;
@@ -26,6 +41,17 @@ public class KeyMessageDaoImpl implements KeyMessageDaoCustom {
     @Autowired
     private ElasticsearchOperations operations;
 
+    /**
+     * Cache of message bundle snapshots
+     */
+    @Autowired(required = false)
+    private MessageBundleCache bundleCache;
+
+    /**
+     * Default Elasticsearch repository used to delete messages
+     */
+    private ElasticsearchRepository<KeyMessage, String> esRepository;
+
 
     /**
      * Empty constructor
@@ -42,9 +68,21 @@ public class KeyMessageDaoImpl implements KeyMessageDaoCustom {
         this.operations = operations;
     }
 
+    /**
+     * Constructor with operations and bundle cache
+     *
+     * @param operations  Elasticsearch operations
+     * @param bundleCache Cache of message bundle snapshots
+     */
+    public KeyMessageDaoImpl(ElasticsearchOperations operations, MessageBundleCache bundleCache) {
+        this.operations = operations;
+        this.bundleCache = bundleCache;
+    }
+
 
     /**
      * Find a message for the specified arguments.
+     * A document found under the derived identifier but holding other data isn't returned.
      *
      * @param domainId    Domain identifier to filter messages
      * @param key         Message key
@@ -54,23 +92,163 @@ public class KeyMessageDaoImpl implements KeyMessageDaoCustom {
     @Override
     public KeyMessage findOne(final String domainId, final String key, final String languageTag) {
 
-        // Define the filter
-        final List<KeyMessage> messages = operations.queryForList(
+        // Get the message by its identifier derived from the arguments (realtime, no refresh needed)
+        GetQuery getQuery = new GetQuery();
+        getQuery.setId(KeyMessage.buildId(domainId, key, languageTag));
+
+        final KeyMessage message = operations.queryForObject(getQuery, KeyMessage.class);
+        return (message != null && hasDerivedId(message)) ? message : null;
+    }
+
+    /**
+     * Find the messages for a set of keys with a single multi-get request.
+     *
+     * @param domainId    Domain identifier to filter messages
+     * @param keys        Message keys
+     * @param languageTag Language tag to filter messages
+     * @return The matched messages, in the order of the keys, without the missing ones
+     */
+    @Override
+    public Iterable<KeyMessage> findAll(final String domainId, final Iterable<String> keys, final String languageTag) {
+
+        // Get the message identifiers derived from the keys
+        final List<String> messageIds = StreamSupport.stream(keys.spliterator(), false)
+                .map(key -> KeyMessage.buildId(domainId, key, languageTag))
+                .collect(Collectors.toList());
+        if (messageIds.isEmpty())
+            return new ArrayList<>();
+
+        // Get the messages by identifiers (realtime, no refresh needed)
+        return operations.multiGet(
                 new NativeSearchQueryBuilder()
-                        .withQuery(
-                                QueryBuilders.constantScoreQuery(
-                                        QueryBuilders.boolQuery()
-                                                .must(QueryBuilders.termQuery(KeyMessage.FIELD_DOMAIN_ID.getName(), domainId))
-                                                .must(QueryBuilders.termQuery(KeyMessage.FIELD_KEY.getName(), key))
-                                                .must(QueryBuilders.termQuery(KeyMessage.FIELD_LANGUAGE_TAG.getName(), languageTag))))
-                        .build(), KeyMessage.class);
-
-        if (messages.isEmpty())
-            return null;
-        else if (messages.size() > 1)
-            throw new RuntimeException("At most one message should be found given the criteria.");
+                        .withIds(messageIds)
+                        .build(), KeyMessage.class)
+                .stream()
+                .filter(this::hasDerivedId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * <p>Find the message bundle of a domain: every key of the domain resolved to its best matching message content.</p>
+     * <p>The message language tag of a key is selected with {@link Locale#lookup(List, Collection)}
+     * among the language tags available for this key, or is the domain's default language tag if none matches.
+     * Keys that have no message for the selected language tag are not part of the bundle.</p>
+     *
+     * @param domain         Domain of the messages
+     * @param languageRanges Language ranges used to select message language tags
+     * @return The resolved message bundle
+     */
+    @Override
+    public MessageBundle findBundle(final Domain domain, final List<Locale.LanguageRange> languageRanges) {
+
+        // Get the bundle from the domain snapshot cache, or resolve it from a snapshot built for this request
+        if (bundleCache != null)
+            return bundleCache.get(domain, languageRanges, this::findByDomainId);
         else
-            return messages.get(0);
+            return new MessageBundleSnapshot(findByDomainId(domain.getId()), domain.getDefaultLanguageTag())
+                    .resolve(languageRanges);
+    }
+
+    /**
+     * Save a message under the identifier derived from its domain identifier, key and language tag,
+     * so that saving the same message twice updates it instead of inserting a duplicate.
+     * If the message had another identifier, the document indexed under this identifier is deleted.
+     *
+     * @param entity The message to save
+     * @return The message saved
+     */
+    @SuppressWarnings("unused")
+    public KeyMessage save(KeyMessage entity) {
+
+        Assert.notNull(entity, "Cannot save 'null' entity.");
+
+        final String formerId = entity.getId();
+        operations.index(newIndexQuery(entity));
+        deleteFormerDocument(formerId, entity.getId());
+        refreshIndex();
+        invalidateBundle(entity.getDomainId());
+
+        return entity;
+    }
+
+    /**
+     * Save a list of messages with a single bulk request, under the identifiers derived from their domain identifier,
+     * key and language tag. Documents indexed under former identifiers of the messages are deleted.
+     *
+     * @param entities The messages to save
+     * @return The messages saved
+     */
+    @SuppressWarnings("unused")
+    public Iterable<KeyMessage> save(Iterable<KeyMessage> entities) {
+
+        Assert.notNull(entities, "Cannot insert 'null' as a List.");
+
+        final List<String> formerIds = new ArrayList<>();
+        final List<IndexQuery> indexQueries = new ArrayList<>();
+        for (KeyMessage entity : entities) {
+            formerIds.add(entity.getId());
+            indexQueries.add(newIndexQuery(entity));
+        }
+        if (!indexQueries.isEmpty()) {
+            operations.bulkIndex(indexQueries);
+
+            int i = 0;
+            for (KeyMessage entity : entities)
+                deleteFormerDocument(formerIds.get(i++), entity.getId());
+            refreshIndex();
+            entities.forEach(entity -> invalidateBundle(entity.getDomainId()));
+        }
+
+        return entities;
+    }
+
+    /**
+     * Delete a message by identifier.
+     * As the message's domain isn't known, the bundles of all domains are invalidated.
+     *
+     * @param id The message identifier
+     */
+    @SuppressWarnings("unused")
+    public void delete(String id) {
+
+        getElasticsearchRepository().delete(id);
+        invalidateBundles();
+    }
+
+    /**
+     * Delete a message.
+     *
+     * @param entity The message to delete
+     */
+    @SuppressWarnings("unused")
+    public void delete(KeyMessage entity) {
+
+        getElasticsearchRepository().delete(entity);
+        if (entity != null)
+            invalidateBundle(entity.getDomainId());
+    }
+
+    /**
+     * Delete a list of messages.
+     *
+     * @param entities The messages to delete
+     */
+    @SuppressWarnings("unused")
+    public void delete(Iterable<? extends KeyMessage> entities) {
+
+        getElasticsearchRepository().delete(entities);
+        if (entities != null)
+            entities.forEach(entity -> invalidateBundle(entity.getDomainId()));
+    }
+
+    /**
+     * Delete all messages.
+     */
+    @SuppressWarnings("unused")
+    public void deleteAll() {
+
+        getElasticsearchRepository().deleteAll();
+        invalidateBundles();
     }
 
     /**
@@ -107,4 +285,123 @@ public class KeyMessageDaoImpl implements KeyMessageDaoCustom {
                         .build(),
                 KeyMessage.class);
     }
+
+    /**
+     * Pass each message of a domain to an action, scrolling through the messages page by page,
+     * so that large domains are fully read with a single page held in memory.
+     *
+     * @param domainId The domain identifier the messages must match
+     * @param action   The action to perform on each message
+     */
+    @Override
+    public void forEachByDomainId(final String domainId, final Consumer<? super KeyMessage> action) {
+
+        DocumentScanner.scan(
+                operations,
+                QueryBuilders.constantScoreQuery(
+                        QueryBuilders.termQuery(KeyMessage.FIELD_DOMAIN_ID.getName(), domainId)),
+                KeyMessage.class,
+                action);
+    }
+
+
+    /*----------------------------------------------------------------------------------------------------------------*/
+    /*                                                   Private methods                                              */
+    /*----------------------------------------------------------------------------------------------------------------*/
+
+    /**
+     * Get the default Elasticsearch repository.
+     *
+     * @return The default Elasticsearch repository
+     */
+    private ElasticsearchRepository<KeyMessage, String> getElasticsearchRepository() {
+
+        if (esRepository == null)
+            esRepository = new SimpleElasticsearchRepository<>(
+                    new ElasticsearchRepositoryFactory(operations).getEntityInformation(KeyMessage.class),
+                    operations);
+
+        return esRepository;
+    }
+
+    /**
+     * Mark the bundle snapshot of a domain as stale.
+     *
+     * @param domainId The domain identifier
+     */
+    private void invalidateBundle(final String domainId) {
+
+        if (bundleCache != null)
+            bundleCache.invalidate(domainId);
+    }
+
+    /**
+     * Mark the bundle snapshots of all domains as stale.
+     */
+    private void invalidateBundles() {
+
+        if (bundleCache != null)
+            bundleCache.invalidateAll();
+    }
+
+    /**
+     * Find all messages that belong to a domain, scrolling through the results so that large domains are fully read.
+     *
+     * @param domainId The domain identifier the messages must match
+     * @return The messages that belong to the domain
+     */
+    private List<KeyMessage> findByDomainId(final String domainId) {
+
+        final List<KeyMessage> messages = new ArrayList<>();
+        forEachByDomainId(domainId, messages::add);
+
+        return messages;
+    }
+
+    /**
+     * Build the query indexing a message, after deriving its identifier from its data.
+     *
+     * @param message The message to index
+     * @return The index query
+     */
+    private IndexQuery newIndexQuery(final KeyMessage message) {
+
+        message.setId(KeyMessage.buildId(message.getDomainId(), message.getKey(), message.getLanguageTag()));
+
+        IndexQuery indexQuery = new IndexQuery();
+        indexQuery.setId(message.getId());
+        indexQuery.setObject(message);
+
+        return indexQuery;
+    }
+
+    /**
+     * Delete the document a message was indexed under before its identifier was derived.
+     * As the domain of the former document isn't known, the bundles of all domains are invalidated.
+     *
+     * @param formerId  The former identifier of the message, {@code null} if it had none
+     * @param derivedId The derived identifier of the message
+     */
+    private void deleteFormerDocument(final String formerId, final String derivedId) {
+
+        if (formerId != null && !formerId.equals(derivedId))
+            delete(formerId);
+    }
+
+    /**
+     * Indicate if a message found by identifier has the identifier derived from its data.
+     *
+     * @param message The found message
+     * @return {@code true} if the message identifier is derived from its domain identifier, key and language tag
+     */
+    private boolean hasDerivedId(final KeyMessage message) {
+        return KeyMessage.buildId(message.getDomainId(), message.getKey(), message.getLanguageTag()).equals(message.getId());
+    }
+
+    /**
+     * Refresh the message index, so that saved messages are searchable.
+     */
+    private void refreshIndex() {
+        operations.refresh(KeyMessage.class.getDeclaredAnnotation(Document.class).indexName(), true);
+    }
 }
@@ -0,0 +1,20 @@
+package info.jallaix.message.dao.interceptor;
+
+/**
+ * <p>An entity whose properties annotated with {@link I18nMessage} hold a localized content when read or written
+ * by clients, but are persisted as message types, the contents being stored as entity messages.</p>
+ * <p>The persisted view is a copy-on-write of the entity: a shallow copy sharing all properties with the entity,
+ * except the {@link I18nMessage} ones that are replaced by their message type.
+ * It's built without reflection nor graph walk, and the entity itself is left unchanged.</p>
+ *
+ * @param <T> Type of the entity
+ */
+public interface I18nMessageEntity<T extends I18nMessageEntity<T>> {
+
+    /**
+     * Get the persisted view of the entity.
+     *
+     * @return A new shallow copy of the entity, with {@link I18nMessage} properties set to their message type
+     */
+    T toPersistedView();
+}
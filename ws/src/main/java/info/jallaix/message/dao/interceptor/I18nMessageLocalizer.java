@@ -0,0 +1,494 @@
+package info.jallaix.message.dao.interceptor;
+
+import info.jallaix.message.bean.EntityMessage;
+import info.jallaix.message.config.DomainHolder;
+import info.jallaix.message.dao.ActionListenerFuture;
+import info.jallaix.message.dao.DocumentScanner;
+import info.jallaix.message.dao.cache.EntityMessageCache;
+import info.jallaix.message.dao.cache.EntityMessageKey;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.DefaultResultMapper;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.ResultsMapper;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Localization engine for the properties annotated with {@link I18nMessage}, see {@link I18nMessagePropertiesHolder}.</p>
+ * <p>The annotated properties of any number of entities, of any class, are localized from the entity messages
+ * of the I18N domain, with a single request for the messages that aren't cached:
+ * a multi-get of the message identifiers derived from the candidate language tags of the output locales,
+ * or a search of all messages, scrolled page by page, if an output language range is a wildcard.
+ * Each property is then set to the content of the message best matching the output locales,
+ * or to {@code null} if there is none.</p>
+ * <p>The messages of a single entity may also be fetched asynchronously, concurrently with the entity itself,
+ * see {@link #findMessagesAsync(Class, String, LanguageResolution)}.</p>
+ */
+public class I18nMessageLocalizer {
+
+    /**
+     * Elasticsearch operations
+     */
+    private final ElasticsearchOperations esOperations;
+
+    /**
+     * Application's internationalization data
+     */
+    private final DomainHolder i18nDomainHolder;
+
+    /**
+     * Holder for accessing locale data
+     */
+    private final ThreadLocaleHolder threadLocaleHolder;
+
+    /**
+     * Holder of the properties to localize
+     */
+    private final I18nMessagePropertiesHolder propertiesHolder;
+
+    /**
+     * Cache of entity messages
+     */
+    private final EntityMessageCache entityMessageCache;
+
+    /**
+     * Mapper of client responses to messages
+     */
+    private final ResultsMapper resultsMapper;
+
+
+    /**
+     * Constructor
+     *
+     * @param esOperations       Elasticsearch operations
+     * @param i18nDomainHolder   Application's internationalization data
+     * @param threadLocaleHolder Holder for accessing locale data
+     * @param propertiesHolder   Holder of the properties to localize
+     * @param entityMessageCache Cache of entity messages
+     */
+    public I18nMessageLocalizer(final ElasticsearchOperations esOperations,
+                                final DomainHolder i18nDomainHolder,
+                                final ThreadLocaleHolder threadLocaleHolder,
+                                final I18nMessagePropertiesHolder propertiesHolder,
+                                final EntityMessageCache entityMessageCache) {
+
+        this.esOperations = esOperations;
+        this.i18nDomainHolder = i18nDomainHolder;
+        this.threadLocaleHolder = threadLocaleHolder;
+        this.propertiesHolder = propertiesHolder;
+        this.entityMessageCache = entityMessageCache;
+        this.resultsMapper = new DefaultResultMapper(esOperations.getElasticsearchConverter().getMappingContext());
+    }
+
+
+    /**
+     * Localize the properties of an entity.
+     * {@link ThreadLocaleHolder#getOutputLocales()} is used for language selection.
+     *
+     * @param entity The entity to localize, may be {@code null}
+     * @param <T>    Type of the entity
+     * @return The localized entity
+     */
+    public <T> T localize(final T entity) {
+
+        if (entity != null)
+            localize(Collections.singletonList(entity));
+
+        return entity;
+    }
+
+    /**
+     * Localize the properties of a list of entities, with a single request for the messages that aren't cached.
+     * {@link ThreadLocaleHolder#getOutputLocales()} is used for language selection.
+     *
+     * @param entities The entities to localize, {@code null} entities are ignored
+     * @param <T>      Type of the entity list
+     * @return The localized entities
+     */
+    public <T extends Iterable<?>> T localize(final T entities) {
+
+        if (entities == null)
+            return null;
+
+        // Get the localized properties of the entities having an identifier
+        final List<PropertyValue> propertyValues = new ArrayList<>();
+        for (Object entity : entities)
+            if (entity != null)
+                propertyValues.addAll(getPropertyValues(entity));
+        if (propertyValues.isEmpty())
+            return entities;
+
+        // Find the messages of all properties, grouped by message type and entity identifier
+        final LanguageResolution resolution = threadLocaleHolder.getLanguageResolution();
+        final Map<Pair<String, String>, List<EntityMessage>> messagesByProperty = findMessages(propertyValues, resolution.getCandidateLanguageTags());
+
+        setValues(propertyValues, messagesByProperty, resolution);
+        return entities;
+    }
+
+    /**
+     * Localize the properties of an entity from messages already found, without any request.
+     *
+     * @param entity     The entity to localize, may be {@code null}
+     * @param messages   The messages of the entity, see {@link #findMessagesAsync(Class, String, LanguageResolution)}
+     * @param resolution Resolution of the output locales the messages were found for
+     * @param <T>        Type of the entity
+     * @return The localized entity
+     */
+    public <T> T localize(final T entity, final Collection<EntityMessage> messages, final LanguageResolution resolution) {
+
+        if (entity == null)
+            return null;
+
+        final List<PropertyValue> propertyValues = getPropertyValues(entity);
+        final Map<Pair<String, String>, List<EntityMessage>> messagesByProperty = new HashMap<>();
+        messages.forEach(message -> addMessage(messagesByProperty, message));
+
+        setValues(propertyValues, messagesByProperty, resolution);
+        return entity;
+    }
+
+    /**
+     * <p>Find the messages of an entity without blocking the calling thread, so that they may be fetched
+     * concurrently with the entity itself. The entity is then localized with
+     * {@link #localize(Object, Collection, LanguageResolution)}.</p>
+     * <p>The language resolution must be captured by the calling thread,
+     * since the messages are received by an Elasticsearch thread.</p>
+     *
+     * @param entityClass Class of the entity
+     * @param entityId    Identifier of the entity
+     * @param resolution  Resolution of the output locales
+     * @return The future messages of the entity
+     */
+    public CompletableFuture<List<EntityMessage>> findMessagesAsync(final Class<?> entityClass,
+                                                                    final String entityId,
+                                                                    final LanguageResolution resolution) {
+
+        final Set<String> types = propertiesHolder.getProperties(entityClass).stream()
+                .map(I18nMessageProperty::getType)
+                .collect(Collectors.toSet());
+        if (types.isEmpty() || entityId == null)
+            return CompletableFuture.completedFuture(Collections.emptyList());
+
+        final String i18nDomainId = i18nDomainHolder.getDomain().getId();
+        final List<String> languageTags = resolution.getCandidateLanguageTags();
+
+        // Search all messages, merged with the cache that holds messages written but not yet searchable
+        if (languageTags == null)
+            return DocumentScanner.scanAsync(
+                    esOperations,
+                    resultsMapper,
+                    buildSearchQuery(i18nDomainId, types, Collections.singleton(entityId)),
+                    EntityMessage.class)
+                    .thenApply(foundMessages -> foundMessages.stream()
+                            .map(message -> entityMessageCache.merge(EntityMessageKey.of(message), message))
+                            .collect(Collectors.toList()));
+
+        // Get messages from the cache
+        final List<EntityMessage> messages = new ArrayList<>();
+        final List<EntityMessageKey> keys = new ArrayList<>(types.size() * languageTags.size());
+        for (String type : types)
+            for (String languageTag : languageTags)
+                keys.add(new EntityMessageKey(i18nDomainId, type, entityId, languageTag));
+
+        final Set<EntityMessageKey> uncachedKeys = getCachedMessages(keys, messages::add);
+        if (uncachedKeys.isEmpty())
+            return CompletableFuture.completedFuture(messages);
+
+        // Get the other messages from their derived identifiers
+        final ActionListenerFuture<MultiGetResponse> multiGetFuture = new ActionListenerFuture<>();
+        newMultiGetRequest(uncachedKeys).execute(multiGetFuture);
+
+        return multiGetFuture.thenApply(response -> {
+            mergeMessages(uncachedKeys, mapVersionedMessages(response), messages::add);
+            return messages;
+        });
+    }
+
+    /**
+     * Get the localized properties of an entity.
+     *
+     * @param entity The entity
+     * @return The localized properties, empty if the entity has no identifier
+     */
+    private List<PropertyValue> getPropertyValues(final Object entity) {
+
+        final List<PropertyValue> propertyValues = new ArrayList<>();
+        for (I18nMessageProperty property : propertiesHolder.getProperties(entity.getClass())) {
+            final String entityId = property.getEntityId(entity);
+            if (entityId != null)
+                propertyValues.add(new PropertyValue(entity, property, entityId));
+        }
+
+        return propertyValues;
+    }
+
+    /**
+     * Set each property to the content of the message best matching the output locales, or to {@code null} if there is none.
+     *
+     * @param propertyValues     The localized properties
+     * @param messagesByProperty The messages, grouped by message type and entity identifier
+     * @param resolution         Resolution of the output locales
+     */
+    private static void setValues(final List<PropertyValue> propertyValues,
+                                  final Map<Pair<String, String>, List<EntityMessage>> messagesByProperty,
+                                  final LanguageResolution resolution) {
+
+        for (PropertyValue propertyValue : propertyValues) {
+
+            final List<EntityMessage> messages = messagesByProperty.getOrDefault(propertyValue.getMessageKey(), Collections.emptyList());
+            final String lookupTag = resolution.lookup(messages.stream().map(EntityMessage::getLanguageTag).collect(Collectors.toSet()));
+            propertyValue.property.setValue(
+                    propertyValue.entity,
+                    messages.stream()
+                            .filter(message -> lookupTag.equals(message.getLanguageTag()))
+                            .findFirst()
+                            .map(EntityMessage::getContent)
+                            .orElse(null));
+        }
+    }
+
+    /**
+     * <p>Find the messages of a list of localized properties with a single request.
+     * Only the messages matching the provided language tags are transferred.</p>
+     * <p>Cached messages and messages known to be missing are not requested.
+     * Language tags without message are recorded as missing.</p>
+     *
+     * @param propertyValues The localized properties
+     * @param languageTags   Language tags the messages must match, {@code null} for all language tags
+     * @return The found messages, grouped by message type and entity identifier
+     */
+    private Map<Pair<String, String>, List<EntityMessage>> findMessages(final List<PropertyValue> propertyValues,
+                                                                        final Collection<String> languageTags) {
+
+        final String i18nDomainId = i18nDomainHolder.getDomain().getId();
+        final Map<Pair<String, String>, List<EntityMessage>> messagesByProperty = new HashMap<>();
+
+        // Search all messages, merged with the cache that holds messages written but not yet searchable
+        if (languageTags == null) {
+            searchMessages(i18nDomainId, propertyValues).stream()
+                    .map(message -> entityMessageCache.merge(EntityMessageKey.of(message), message))
+                    .forEach(message -> addMessage(messagesByProperty, message));
+
+            return messagesByProperty;
+        }
+
+        // Get messages from the cache
+        final List<EntityMessageKey> keys = new ArrayList<>(propertyValues.size() * languageTags.size());
+        for (PropertyValue propertyValue : propertyValues)
+            for (String languageTag : languageTags)
+                keys.add(new EntityMessageKey(i18nDomainId, propertyValue.property.getType(), propertyValue.entityId, languageTag));
+
+        final Set<EntityMessageKey> uncachedKeys = getCachedMessages(keys, message -> addMessage(messagesByProperty, message));
+        if (uncachedKeys.isEmpty())
+            return messagesByProperty;
+
+        // Get the other messages from their derived identifiers
+        mergeMessages(uncachedKeys, getMessages(uncachedKeys), message -> addMessage(messagesByProperty, message));
+
+        return messagesByProperty;
+    }
+
+    /**
+     * Get messages from the cache.
+     *
+     * @param keys     Keys of the messages
+     * @param consumer Consumer of the cached messages
+     * @return Keys of the messages neither cached nor known to be missing
+     */
+    private Set<EntityMessageKey> getCachedMessages(final Collection<EntityMessageKey> keys, final Consumer<EntityMessage> consumer) {
+
+        final Set<EntityMessageKey> uncachedKeys = new LinkedHashSet<>();
+        for (EntityMessageKey key : keys) {
+
+            final EntityMessageCache.Lookup lookup = entityMessageCache.lookup(key);
+            if (lookup.isAbsent())
+                uncachedKeys.add(key);
+            else if (lookup.getMessage() != null)
+                consumer.accept(lookup.getMessage());
+        }
+
+        return uncachedKeys;
+    }
+
+    /**
+     * Merge the messages found for uncached keys with the cache. Messages not found are remembered as missing.
+     *
+     * @param uncachedKeys  Keys of the requested messages
+     * @param foundMessages The messages found
+     * @param consumer      Consumer of the merged messages
+     */
+    private void mergeMessages(final Collection<EntityMessageKey> uncachedKeys,
+                               final Collection<EntityMessage> foundMessages,
+                               final Consumer<EntityMessage> consumer) {
+
+        final Map<EntityMessageKey, EntityMessage> foundMessagesByKey = foundMessages.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(EntityMessageKey::of, message -> message, (first, second) -> first));
+        for (EntityMessageKey key : uncachedKeys) {
+            final EntityMessage message = entityMessageCache.merge(key, foundMessagesByKey.get(key));
+            if (message != null)
+                consumer.accept(message);
+        }
+    }
+
+    /**
+     * Search all messages of a list of localized properties with a single query, scrolled page by page
+     * so that the messages of many entities aren't limited by the search window.
+     *
+     * @param i18nDomainId   Identifier of the I18N domain
+     * @param propertyValues The localized properties
+     * @return The found messages
+     */
+    private List<EntityMessage> searchMessages(final String i18nDomainId, final List<PropertyValue> propertyValues) {
+
+        final Set<String> types = propertyValues.stream().map(propertyValue -> propertyValue.property.getType()).collect(Collectors.toSet());
+        final Set<String> entityIds = propertyValues.stream().map(propertyValue -> propertyValue.entityId).collect(Collectors.toSet());
+
+        final List<EntityMessage> messages = new ArrayList<>();
+        DocumentScanner.scan(esOperations, buildSearchQuery(i18nDomainId, types, entityIds), EntityMessage.class, messages::add);
+
+        return messages;
+    }
+
+    /**
+     * Build the query searching all messages of a set of message types and entity identifiers.
+     * Messages of other type and entity identifier combinations may be found, they are ignored.
+     *
+     * @param i18nDomainId Identifier of the I18N domain
+     * @param types        The message types
+     * @param entityIds    The entity identifiers
+     * @return The query
+     */
+    private static QueryBuilder buildSearchQuery(final String i18nDomainId, final Collection<String> types, final Collection<String> entityIds) {
+
+        return QueryBuilders.constantScoreQuery(
+                QueryBuilders.boolQuery()
+                        .must(QueryBuilders.termQuery(EntityMessage.FIELD_DOMAIN_ID.getName(), i18nDomainId))
+                        .must(QueryBuilders.termsQuery(EntityMessage.FIELD_TYPE.getName(), types))
+                        .must(QueryBuilders.termsQuery(EntityMessage.FIELD_ENTITY_ID.getName(), entityIds)));
+    }
+
+    /**
+     * Get messages from their keys with a single multi-get request.
+     * Message identifiers are derived from their keys, so that messages are read in realtime without waiting for an index refresh.
+     *
+     * @param keys The message keys
+     * @return The existing messages with their versions, those that don't exist are skipped
+     */
+    private List<EntityMessage> getMessages(final Collection<EntityMessageKey> keys) {
+        return mapVersionedMessages(newMultiGetRequest(keys).get());
+    }
+
+    /**
+     * Build the multi-get request reading messages from their identifiers derived from their keys.
+     *
+     * @param keys The message keys
+     * @return The multi-get request
+     */
+    private MultiGetRequestBuilder newMultiGetRequest(final Collection<EntityMessageKey> keys) {
+
+        final Document messageDocument = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        final MultiGetRequestBuilder multiGetRequest = esOperations.getClient().prepareMultiGet();
+        keys.forEach(key -> multiGetRequest.add(messageDocument.indexName(), messageDocument.type(), buildMessageId(key)));
+
+        return multiGetRequest;
+    }
+
+    /**
+     * Map the messages of a multi-get response with their versions, so that the cache keeps the newer of
+     * a cached message and a read one. Messages that don't exist or failed to be read are skipped.
+     *
+     * @param response The multi-get response
+     * @return The existing messages with their versions
+     */
+    private List<EntityMessage> mapVersionedMessages(final MultiGetResponse response) {
+
+        final List<EntityMessage> messages = new ArrayList<>();
+        for (MultiGetItemResponse item : response.getResponses()) {
+            if (item.isFailed() || !item.getResponse().isExists())
+                continue;
+
+            final EntityMessage message = resultsMapper.mapResult(item.getResponse(), EntityMessage.class);
+            message.setVersion(item.getResponse().getVersion());
+            messages.add(message);
+        }
+
+        return messages;
+    }
+
+    /**
+     * Build the identifier of a message derived from its key.
+     *
+     * @param key The message key
+     * @return The message identifier
+     */
+    private static String buildMessageId(final EntityMessageKey key) {
+        return EntityMessage.buildId(key.getDomainId(), key.getType(), key.getEntityId(), key.getLanguageTag());
+    }
+
+    /**
+     * Add a message to the messages grouped by message type and entity identifier.
+     *
+     * @param messagesByProperty The grouped messages
+     * @param message            The message to add
+     */
+    private static void addMessage(final Map<Pair<String, String>, List<EntityMessage>> messagesByProperty, final EntityMessage message) {
+        messagesByProperty.computeIfAbsent(new ImmutablePair<>(message.getType(), message.getEntityId()), key -> new ArrayList<>()).add(message);
+    }
+
+
+    /**
+     * A localized property of an entity.
+     */
+    private static class PropertyValue {
+
+        /**
+         * The entity
+         */
+        private final Object entity;
+
+        /**
+         * The localized property
+         */
+        private final I18nMessageProperty property;
+
+        /**
+         * The entity identifier
+         */
+        private final String entityId;
+
+        /**
+         * Constructor
+         *
+         * @param entity   The entity
+         * @param property The localized property
+         * @param entityId The entity identifier
+         */
+        private PropertyValue(final Object entity, final I18nMessageProperty property, final String entityId) {
+
+            this.entity = entity;
+            this.property = property;
+            this.entityId = entityId;
+        }
+
+        /**
+         * Get the key grouping the messages of the property.
+         *
+         * @return The message type and the entity identifier
+         */
+        private Pair<String, String> getMessageKey() {
+            return new ImmutablePair<>(property.getType(), entityId);
+        }
+    }
+}
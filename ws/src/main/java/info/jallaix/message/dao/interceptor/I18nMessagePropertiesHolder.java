@@ -1,23 +1,163 @@
 package info.jallaix.message.dao.interceptor;
 
-import org.springframework.data.mapping.PropertyPath;
+import lombok.Value;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.util.ClassUtils;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Created by Julien on 01/02/2017.
+ * <p>This holder gives access to the properties annotated with {@link I18nMessage} of entity classes,
+ * see {@link I18nMessageProperty}.</p>
+ * <p>The holder is filled once, when it's built, usually from a classpath scan of the entity classes at startup.
+ * Their property accessors are compiled then, and the holder is frozen into an immutable lookup:
+ * reads don't lock, and no class is registered afterwards. The cost of the scan is reported
+ * by {@link #getScanReport()} and logged.</p>
  */
 public class I18nMessagePropertiesHolder {
 
-    private Map<Class<?>, Set<PropertyPath>> i18nMessageProperties = new HashMap<>();
+    /**
+     * Logger
+     */
+    private static final Log LOG = LogFactory.getLog(I18nMessagePropertiesHolder.class);
 
-    public Set<PropertyPath> getPropertyPaths(Class<?> clazz) {
-        return i18nMessageProperties.get(clazz);
+    /**
+     * Properties annotated with {@link I18nMessage} by entity classes, for entity classes having some
+     */
+    private final Map<Class<?>, List<I18nMessageProperty>> i18nMessageProperties;
+
+    /**
+     * Report of the scan that filled the holder
+     */
+    private final ScanReport scanReport;
+
+
+    /**
+     * Constructor with entity classes to scan.
+     *
+     * @param entityClasses The entity classes
+     */
+    public I18nMessagePropertiesHolder(Class<?>... entityClasses) {
+        this(Arrays.asList(entityClasses), System.nanoTime(), 0);
+    }
+
+    /**
+     * Constructor with entity classes to scan, and the start of their classpath scan.
+     *
+     * @param entityClasses      The entity classes
+     * @param scanStartNanos     Start time of the scan in nanoseconds
+     * @param classpathScanNanos Duration in nanoseconds of the classpath scan that found the entity classes
+     */
+    private I18nMessagePropertiesHolder(final Collection<Class<?>> entityClasses, final long scanStartNanos, final long classpathScanNanos) {
+
+        final Map<Class<?>, List<I18nMessageProperty>> properties = new HashMap<>();
+        for (Class<?> entityClass : entityClasses) {
+            final List<I18nMessageProperty> entityProperties = I18nMessageProperty.scan(entityClass);
+            if (!entityProperties.isEmpty())
+                properties.put(entityClass, entityProperties);
+        }
+
+        this.i18nMessageProperties = Collections.unmodifiableMap(properties);
+        this.scanReport = new ScanReport(
+                entityClasses.size(),
+                properties.size(),
+                properties.values().stream().mapToInt(List::size).sum(),
+                TimeUnit.NANOSECONDS.toMillis(classpathScanNanos),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scanStartNanos));
+    }
+
+    /**
+     * Build a holder from the entity classes, annotated with {@link Document}, found in the classpath.
+     * The scan cost is logged.
+     *
+     * @param basePackages Packages to scan for entity classes
+     * @return The filled holder
+     */
+    public static I18nMessagePropertiesHolder scan(String... basePackages) {
+
+        final long scanStartNanos = System.nanoTime();
+
+        // Find the entity classes
+        final ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(false);
+        provider.addIncludeFilter(new AnnotationTypeFilter(Document.class));
+        final Set<Class<?>> entityClasses = new LinkedHashSet<>();
+        for (String basePackage : basePackages)
+            for (BeanDefinition beanDefinition : provider.findCandidateComponents(basePackage))
+                entityClasses.add(ClassUtils.resolveClassName(beanDefinition.getBeanClassName(), ClassUtils.getDefaultClassLoader()));
+
+        // Scan the entity classes for their properties
+        final I18nMessagePropertiesHolder holder =
+                new I18nMessagePropertiesHolder(entityClasses, scanStartNanos, System.nanoTime() - scanStartNanos);
+        LOG.info("I18N message properties scanned in " + Arrays.toString(basePackages) + ": " + holder.getScanReport());
+
+        return holder;
     }
 
-    public void setPropertyPaths(Class<?> clazz, Set<PropertyPath> propertyPaths) {
-        i18nMessageProperties.put(clazz, propertyPaths);
+
+    /**
+     * Get the properties annotated with {@link I18nMessage} of an entity class.
+     * A class that isn't scanned, such as an entity subclass or a proxy class, gets the properties of its closest
+     * scanned superclass.
+     *
+     * @param clazz The entity class
+     * @return The properties, empty if neither the class nor its superclasses have some
+     */
+    public List<I18nMessageProperty> getProperties(Class<?> clazz) {
+
+        for (Class<?> type = clazz; type != null && type != Object.class; type = type.getSuperclass()) {
+            final List<I18nMessageProperty> properties = i18nMessageProperties.get(type);
+            if (properties != null)
+                return properties;
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get the report of the scan that filled the holder.
+     *
+     * @return The scan report
+     */
+    public ScanReport getScanReport() {
+        return scanReport;
+    }
+
+
+    /**
+     * Report of the scan that filled the holder.
+     */
+    @Value
+    public static class ScanReport {
+
+        /**
+         * Number of scanned entity classes
+         */
+        private final int entityClassCount;
+
+        /**
+         * Number of entity classes having {@link I18nMessage} properties
+         */
+        private final int localizedClassCount;
+
+        /**
+         * Number of {@link I18nMessage} properties
+         */
+        private final int propertyCount;
+
+        /**
+         * Duration in milliseconds of the classpath scan that found the entity classes
+         */
+        private final long classpathScanMillis;
+
+        /**
+         * Total duration in milliseconds of the scan, including the compilation of property accessors
+         */
+        private final long totalScanMillis;
     }
 }
@@ -0,0 +1,350 @@
+package info.jallaix.message.dao.interceptor;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * <p>A property of an entity class, annotated with {@link I18nMessage}, whose content is stored as entity messages.</p>
+ * <p>The property may be nested in the entity (for example {@code address.label}). Its accessors are compiled
+ * once into functions when the entity class is scanned, so that reading or writing the property doesn't use
+ * reflection. The message type of the property is the entity class name followed by the property path,
+ * for example {@code info.jallaix.message.bean.Domain.description}.</p>
+ */
+public final class I18nMessageProperty {
+
+    /**
+     * Path of the property from the entity class
+     */
+    private final PropertyPath path;
+
+    /**
+     * Message type of the property
+     */
+    private final String type;
+
+    /**
+     * Function getting the entity identifier from the entity
+     */
+    private final Function<Object, Object> entityIdGetter;
+
+    /**
+     * Function getting the property value from the entity, {@code null} if an intermediate property is {@code null}
+     */
+    private final Function<Object, Object> getter;
+
+    /**
+     * Function getting the object holding the property from the entity, {@code null} if an intermediate property is {@code null}
+     */
+    private final Function<Object, Object> ownerGetter;
+
+    /**
+     * Function setting the property value on the object holding the property
+     */
+    private final BiConsumer<Object, Object> setter;
+
+
+    /**
+     * Constructor with compiled accessors.
+     *
+     * @param path           Path of the property from the entity class
+     * @param entityIdGetter Function getting the entity identifier from the entity
+     * @param ownerGetter    Function getting the object holding the property from the entity
+     * @param getter         Function getting the property value from the entity
+     * @param setter         Function setting the property value on the object holding the property
+     */
+    private I18nMessageProperty(final PropertyPath path,
+                                final Function<Object, Object> entityIdGetter,
+                                final Function<Object, Object> ownerGetter,
+                                final Function<Object, Object> getter,
+                                final BiConsumer<Object, Object> setter) {
+
+        this.path = path;
+        this.type = path.getOwningType().getType().getName() + "." + path.toDotPath();
+        this.entityIdGetter = entityIdGetter;
+        this.ownerGetter = ownerGetter;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+
+    /*----------------------------------------------------------------------------------------------------------------*/
+    /*                                                  Property access                                               */
+    /*----------------------------------------------------------------------------------------------------------------*/
+
+    /**
+     * Get the path of the property from the entity class.
+     *
+     * @return The property path
+     */
+    public PropertyPath getPath() {
+        return path;
+    }
+
+    /**
+     * Get the message type of the property.
+     *
+     * @return The message type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Get the identifier of an entity holding the property.
+     *
+     * @param entity The entity
+     * @return The entity identifier, or {@code null} if the entity has none
+     */
+    public String getEntityId(final Object entity) {
+
+        final Object entityId = entityIdGetter.apply(entity);
+        return (entityId == null) ? null : entityId.toString();
+    }
+
+    /**
+     * Get the property value of an entity.
+     *
+     * @param entity The entity
+     * @return The property value, or {@code null} if an intermediate property is {@code null}
+     */
+    public String getValue(final Object entity) {
+        return (String) getter.apply(entity);
+    }
+
+    /**
+     * Set the property value of an entity. Nothing is set if an intermediate property is {@code null}.
+     *
+     * @param entity The entity
+     * @param value  The property value
+     */
+    public void setValue(final Object entity, final String value) {
+
+        final Object owner = ownerGetter.apply(entity);
+        if (owner != null)
+            setter.accept(owner, value);
+    }
+
+
+    /*----------------------------------------------------------------------------------------------------------------*/
+    /*                                                    Class scanning                                              */
+    /*----------------------------------------------------------------------------------------------------------------*/
+
+    /**
+     * Find the properties annotated with {@link I18nMessage} in an entity class and in its nested beans,
+     * and compile their accessors.
+     *
+     * @param entityClass The entity class, having a property annotated with {@link Id}
+     * @return The properties found, empty if there is none
+     * @throws IllegalStateException If an annotated property isn't a readable and writable {@link String},
+     *                               or if the entity class has no identifier
+     */
+    public static List<I18nMessageProperty> scan(final Class<?> entityClass) {
+
+        final List<String> dotPaths = new ArrayList<>();
+        findPropertyPaths(entityClass, "", new HashSet<>(Collections.singleton(entityClass)), dotPaths);
+        if (dotPaths.isEmpty())
+            return Collections.emptyList();
+
+        final Function<Object, Object> entityIdGetter = compileGetter(findIdProperty(entityClass));
+        final List<I18nMessageProperty> properties = new ArrayList<>(dotPaths.size());
+        for (String dotPath : dotPaths) {
+
+            // Compile the getters of each path segment, and the setter of the leaf property
+            Function<Object, Object> ownerGetter = entity -> entity;
+            PropertyPath segment = PropertyPath.from(dotPath, entityClass);
+            final PropertyPath path = segment;
+            while (true) {
+
+                final PropertyDescriptor descriptor = getPropertyDescriptor(segment.getOwningType().getType(), segment.getSegment());
+                if (!segment.hasNext()) {
+                    if (descriptor.getPropertyType() != String.class || descriptor.getWriteMethod() == null)
+                        throw new IllegalStateException("The @I18nMessage property " + entityClass.getName() + "." + dotPath + " must be a writable String");
+
+                    properties.add(new I18nMessageProperty(
+                            path,
+                            entityIdGetter,
+                            ownerGetter,
+                            andThen(ownerGetter, compileGetter(descriptor)),
+                            compileSetter(descriptor)));
+                    break;
+                }
+
+                ownerGetter = andThen(ownerGetter, compileGetter(descriptor));
+                segment = segment.next();
+            }
+        }
+
+        return Collections.unmodifiableList(properties);
+    }
+
+    /**
+     * Find the dot paths of the properties annotated with {@link I18nMessage}, on fields or getters,
+     * in a class and in its nested beans.
+     *
+     * @param type         The class to scan
+     * @param prefix       Dot path of the class from the entity class, empty for the entity class
+     * @param visitedTypes Classes in the current path, so that recursive beans are scanned once
+     * @param dotPaths     The found dot paths
+     */
+    private static void findPropertyPaths(final Class<?> type,
+                                          final String prefix,
+                                          final Set<Class<?>> visitedTypes,
+                                          final List<String> dotPaths) {
+
+        ReflectionUtils.doWithFields(type, field -> {
+
+            final PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, field.getName());
+            if (descriptor == null || descriptor.getReadMethod() == null)
+                return;
+
+            // Annotated property
+            if (AnnotatedElementUtils.isAnnotated(field, I18nMessage.class.getName())
+                    || AnnotatedElementUtils.isAnnotated(descriptor.getReadMethod(), I18nMessage.class.getName()))
+                dotPaths.add(prefix + field.getName());
+
+            // Nested bean
+            else if (isNestedBean(field.getType()) && visitedTypes.add(field.getType())) {
+                findPropertyPaths(field.getType(), prefix + field.getName() + ".", visitedTypes, dotPaths);
+                visitedTypes.remove(field.getType());
+            }
+
+        }, field -> !Modifier.isStatic(field.getModifiers()));
+    }
+
+    /**
+     * Indicate if a property type may be a bean holding {@link I18nMessage} properties.
+     *
+     * @param type The property type
+     * @return {@code true} if the type is neither a JDK type, an array, a collection, a map nor an enum
+     */
+    private static boolean isNestedBean(final Class<?> type) {
+
+        return !type.isPrimitive()
+                && !type.isArray()
+                && !type.isEnum()
+                && !Collection.class.isAssignableFrom(type)
+                && !Map.class.isAssignableFrom(type)
+                && !type.getName().startsWith("java.")
+                && !type.getName().startsWith("javax.");
+    }
+
+    /**
+     * Find the identifier property of an entity class, annotated with {@link Id}.
+     *
+     * @param entityClass The entity class
+     * @return The identifier property
+     * @throws IllegalStateException If the entity class has no readable identifier
+     */
+    private static PropertyDescriptor findIdProperty(final Class<?> entityClass) {
+
+        final List<Field> idFields = new ArrayList<>(1);
+        ReflectionUtils.doWithFields(entityClass, idFields::add, field -> field.isAnnotationPresent(Id.class));
+        if (idFields.isEmpty())
+            throw new IllegalStateException("The entity " + entityClass.getName() + " with @I18nMessage properties has no @Id property");
+
+        return getPropertyDescriptor(entityClass, idFields.get(0).getName());
+    }
+
+    /**
+     * Get a readable property of a class.
+     *
+     * @param type         The class
+     * @param propertyName The property name
+     * @return The property descriptor
+     * @throws IllegalStateException If the property isn't readable
+     */
+    private static PropertyDescriptor getPropertyDescriptor(final Class<?> type, final String propertyName) {
+
+        final PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, propertyName);
+        if (descriptor == null || descriptor.getReadMethod() == null)
+            throw new IllegalStateException("The property " + type.getName() + "." + propertyName + " isn't readable");
+
+        return descriptor;
+    }
+
+
+    /*----------------------------------------------------------------------------------------------------------------*/
+    /*                                                 Accessors compilation                                          */
+    /*----------------------------------------------------------------------------------------------------------------*/
+
+    /**
+     * Compose two getters, the second one isn't called if the first one returns {@code null}.
+     *
+     * @param first  The first getter
+     * @param second The second getter
+     * @return The composed getter
+     */
+    private static Function<Object, Object> andThen(final Function<Object, Object> first, final Function<Object, Object> second) {
+
+        return object -> {
+            final Object intermediate = first.apply(object);
+            return (intermediate == null) ? null : second.apply(intermediate);
+        };
+    }
+
+    /**
+     * Compile the getter of a property into a function.
+     *
+     * @param descriptor The property descriptor
+     * @return The getter function
+     */
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> compileGetter(final PropertyDescriptor descriptor) {
+
+        final Method readMethod = descriptor.getReadMethod();
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            final MethodHandle handle = lookup.unreflect(readMethod);
+            final CallSite callSite = LambdaMetafactory.metafactory(
+                    lookup,
+                    "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    handle.type().wrap());
+
+            return (Function<Object, Object>) callSite.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("The getter " + readMethod + " can't be compiled", e);
+        }
+    }
+
+    /**
+     * Compile the setter of a property into a function.
+     *
+     * @param descriptor The property descriptor
+     * @return The setter function
+     */
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> compileSetter(final PropertyDescriptor descriptor) {
+
+        final Method writeMethod = descriptor.getWriteMethod();
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            final MethodHandle handle = lookup.unreflect(writeMethod);
+            final CallSite callSite = LambdaMetafactory.metafactory(
+                    lookup,
+                    "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    handle,
+                    handle.type().changeReturnType(void.class));
+
+            return (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("The setter " + writeMethod + " can't be compiled", e);
+        }
+    }
+}
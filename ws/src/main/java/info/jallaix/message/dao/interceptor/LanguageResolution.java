@@ -0,0 +1,64 @@
+package info.jallaix.message.dao.interceptor;
+
+import lombok.Value;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Resolution of a list of output language ranges against the languages of a domain,
+ * see {@link LanguageResolver#resolve(List)}.</p>
+ * <p>A resolution is immutable, so that it's shared by all requests having the same language ranges.</p>
+ */
+@Value
+public class LanguageResolution {
+
+    /**
+     * The resolved language ranges
+     */
+    private final List<Locale.LanguageRange> languageRanges;
+
+    /**
+     * <p>Ordered fallback chain of language tags a localized content is selected for (fr-CA, then fr, then the
+     * domain's default language tag), or {@code null} if a language range is a wildcard.</p>
+     * <p>Each language range having a language supported by the domain contributes its language tag and all its
+     * truncations, in the order {@link Locale#lookup(List, Collection)} tries them.</p>
+     */
+    private final List<String> candidateLanguageTags;
+
+    /**
+     * Default language tag of the domain
+     */
+    private final String defaultLanguageTag;
+
+    /**
+     * Language tag of the output content
+     */
+    private final String contentLanguageTag;
+
+
+    /**
+     * Select the best matching language tag among the language tags a content exists for.
+     *
+     * @param existingLanguageTags The language tags a content exists for
+     * @return The first candidate language tag a content exists for, or the default language tag if there is none
+     */
+    public String lookup(final Collection<String> existingLanguageTags) {
+
+        // Wildcard language ranges, run a full lookup
+        if (candidateLanguageTags == null) {
+            final Locale lookupLocale = Locale.lookup(
+                    languageRanges,
+                    existingLanguageTags.stream().map(Locales::forLanguageTag).collect(Collectors.toList()));
+            return (lookupLocale == null) ? defaultLanguageTag : lookupLocale.toLanguageTag();
+        }
+
+        for (String candidateLanguageTag : candidateLanguageTags)
+            if (existingLanguageTags.contains(candidateLanguageTag))
+                return candidateLanguageTag;
+
+        return defaultLanguageTag;
+    }
+}
@@ -0,0 +1,150 @@
+package info.jallaix.message.dao.interceptor;
+
+import info.jallaix.message.bean.Domain;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Locale resolution table of a domain: it maps a list of output language ranges to a {@link LanguageResolution},
+ * holding the ordered fallback chain of language tags a content is selected for and the output content language.</p>
+ * <p>A resolver is built once per domain, and memoizes its resolutions so that each distinct list of language ranges
+ * is resolved once. Once the table is full, resolutions are computed without being memoized.</p>
+ */
+public class LanguageResolver {
+
+    /**
+     * Maximum number of memoized resolutions
+     */
+    private static final int MAX_RESOLUTIONS = 1024;
+
+    /**
+     * The domain the languages are resolved for
+     */
+    private final Domain domain;
+
+    /**
+     * Languages supported by the domain
+     */
+    private final Set<String> supportedLanguages;
+
+    /**
+     * Canonical default language tag of the domain
+     */
+    private final String defaultLanguageTag;
+
+    /**
+     * Memoized resolutions by language ranges
+     */
+    private final Map<List<Locale.LanguageRange>, LanguageResolution> resolutions = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructor with domain.
+     *
+     * @param domain The domain the languages are resolved for
+     */
+    public LanguageResolver(final Domain domain) {
+
+        this.domain = domain;
+        this.supportedLanguages = new HashSet<>(domain.getAvailableLanguageTags());
+        this.defaultLanguageTag = Locales.toCanonicalLanguageTag(domain.getDefaultLanguageTag());
+    }
+
+
+    /**
+     * Get the domain the languages are resolved for.
+     *
+     * @return The domain
+     */
+    public Domain getDomain() {
+        return domain;
+    }
+
+    /**
+     * Resolve a list of output language ranges.
+     *
+     * @param languageRanges The output language ranges
+     * @return The resolution
+     */
+    public LanguageResolution resolve(final List<Locale.LanguageRange> languageRanges) {
+
+        LanguageResolution resolution = resolutions.get(languageRanges);
+        if (resolution == null) {
+
+            // Copy the language ranges, so that the memoization key can't be modified
+            final List<Locale.LanguageRange> rangesCopy = Collections.unmodifiableList(new ArrayList<>(languageRanges));
+            resolution = new LanguageResolution(
+                    rangesCopy,
+                    getCandidateLanguageTags(rangesCopy),
+                    defaultLanguageTag,
+                    getContentLanguageTag(rangesCopy));
+            if (resolutions.size() < MAX_RESOLUTIONS)
+                resolutions.putIfAbsent(rangesCopy, resolution);
+        }
+
+        return resolution;
+    }
+
+    /**
+     * <p>Get the ordered fallback chain of language tags a localized content may be selected for.</p>
+     * <p>Each language range having a language supported by the domain contributes its language tag
+     * and all its truncations, in the order {@link Locale#lookup(List, Collection)} tries them (fr-CA, then fr).
+     * Ranges with a zero weight are ignored. The domain's default language tag is added as the final fallback.</p>
+     *
+     * @param languageRanges The output language ranges
+     * @return The unmodifiable candidate language tags, or {@code null} if a language range is a wildcard
+     */
+    private List<String> getCandidateLanguageTags(final List<Locale.LanguageRange> languageRanges) {
+
+        final Set<String> candidateTags = new LinkedHashSet<>();
+        for (Locale.LanguageRange languageRange : languageRanges) {
+
+            // A wildcard range matches any language tag, the candidates can't be bounded
+            String range = languageRange.getRange();
+            if (range.contains("*"))
+                return null;
+
+            // Skip excluded ranges and unsupported languages
+            if (languageRange.getWeight() == 0 || !supportedLanguages.contains(Locales.forLanguageTag(range).getLanguage()))
+                continue;
+
+            // Add the language tag and its truncations in the stored (BCP 47 canonical) format
+            while (!range.isEmpty()) {
+                candidateTags.add(Locales.toCanonicalLanguageTag(range));
+
+                int separatorIndex = range.lastIndexOf('-');
+                if (separatorIndex < 0)
+                    break;
+                range = range.substring(0, separatorIndex);
+
+                // Remove a trailing singleton (extension or private use prefix)
+                if (range.length() > 1 && range.charAt(range.length() - 2) == '-')
+                    range = range.substring(0, range.length() - 2);
+            }
+        }
+
+        // Default language tag if none is found
+        candidateTags.add(defaultLanguageTag);
+
+        return Collections.unmodifiableList(new ArrayList<>(candidateTags));
+    }
+
+    /**
+     * Get the language tag of the output content: the first language range having a language supported
+     * by the domain, or the domain's default language tag.
+     *
+     * @param languageRanges The output language ranges
+     * @return The output content language tag
+     */
+    private String getContentLanguageTag(final List<Locale.LanguageRange> languageRanges) {
+
+        return languageRanges
+                .stream()
+                .map(Locale.LanguageRange::getRange)                                                    // Get the language tag part
+                .filter(tag -> supportedLanguages.contains(Locales.forLanguageTag(tag).getLanguage()))  // Filter for tags having a supported language
+                .findFirst()                                                                            // Get the most relevant tag
+                .map(Locales::toCanonicalLanguageTag)
+                .orElse(defaultLanguageTag);                                                            // Default language tag if none is found
+    }
+}
@@ -0,0 +1,100 @@
+package info.jallaix.message.dao.interceptor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * <p>Bounded caches of parsed language data, so that parsing and allocation don't happen for each request.</p>
+ * <p>Clients send a small set of distinct {@code Accept-Language} headers, and messages are stored for a small set
+ * of language tags. Parsed language ranges and locales are immutable, so they are shared by all threads.
+ * Once a cache is full, values are parsed without being cached.</p>
+ */
+public final class Locales {
+
+    /**
+     * Maximum number of entries held by each cache
+     */
+    private static final int MAX_CACHE_SIZE = 1024;
+
+    /**
+     * Parsed language range lists by raw language range strings
+     */
+    private static final Map<String, List<Locale.LanguageRange>> LANGUAGE_RANGES = new ConcurrentHashMap<>();
+
+    /**
+     * Locales by language tags
+     */
+    private static final Map<String, Locale> LOCALES = new ConcurrentHashMap<>();
+
+    /**
+     * Canonical language tags by language tags
+     */
+    private static final Map<String, String> CANONICAL_LANGUAGE_TAGS = new ConcurrentHashMap<>();
+
+
+    /**
+     * Utility class
+     */
+    private Locales() {
+    }
+
+
+    /**
+     * Parse a language range list, as found in an {@code Accept-Language} header.
+     *
+     * @param ranges The language range list
+     * @return An unmodifiable list of language ranges
+     * @throws IllegalArgumentException If the language range list is ill-formed
+     * @see Locale.LanguageRange#parse(String)
+     */
+    public static List<Locale.LanguageRange> parseLanguageRanges(final String ranges) {
+        return get(LANGUAGE_RANGES, ranges, value -> Collections.unmodifiableList(Locale.LanguageRange.parse(value)));
+    }
+
+    /**
+     * Get the locale of a language tag.
+     *
+     * @param languageTag The language tag
+     * @return The shared locale
+     * @see Locale#forLanguageTag(String)
+     */
+    public static Locale forLanguageTag(final String languageTag) {
+        return get(LOCALES, languageTag, Locale::forLanguageTag);
+    }
+
+    /**
+     * Get the canonical (BCP 47 well-formed) form of a language tag.
+     *
+     * @param languageTag The language tag
+     * @return The canonical language tag
+     * @see Locale#toLanguageTag()
+     */
+    public static String toCanonicalLanguageTag(final String languageTag) {
+        return get(CANONICAL_LANGUAGE_TAGS, languageTag, value -> forLanguageTag(value).toLanguageTag());
+    }
+
+    /**
+     * Get a cached value, or compute it and cache it if the cache isn't full.
+     *
+     * @param cache  The cache
+     * @param key    The key of the value
+     * @param parser Function computing the value from its key
+     * @param <T>    Type of the value
+     * @return The value
+     */
+    private static <T> T get(final Map<String, T> cache, final String key, final Function<String, T> parser) {
+
+        T value = cache.get(key);
+        if (value == null) {
+            value = parser.apply(key);
+            if (cache.size() < MAX_CACHE_SIZE)
+                cache.putIfAbsent(key, value);
+        }
+
+        return value;
+    }
+}
@@ -1,11 +1,10 @@
 package info.jallaix.message.dao.interceptor;
 
+import info.jallaix.message.bean.Domain;
 import info.jallaix.message.config.DomainHolder;
 import lombok.NoArgsConstructor;
 import org.apache.commons.collections.CollectionUtils;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
@@ -29,6 +28,11 @@ public class ThreadLocaleHolder {
      */
     private DomainHolder i18nDomainHolder;
 
+    /**
+     * Locale resolution table of the I18N domain, rebuilt when the domain instance changes
+     */
+    private volatile LanguageResolver languageResolver;
+
     /**
      * Locale used when storing data
      */
@@ -74,58 +78,54 @@ public class ThreadLocaleHolder {
      * @param outputLocale The output locale to set
      */
     public void setOutputLocale(Locale outputLocale) {
-
-        List<Locale.LanguageRange> languageRanges = this.outputLocales.get();
-
-        // Create language ranges if missing, else clear the list
-        if (languageRanges == null) {
-            languageRanges = new ArrayList<>(1);
-            this.outputLocales.set(languageRanges);
-        } else
-            languageRanges.clear();
-
-        // Add the single language range
-        languageRanges.add(new Locale.LanguageRange(outputLocale.toLanguageTag()));
+        this.outputLocales.set(Locales.parseLanguageRanges(outputLocale.toLanguageTag()));
     }
 
     /**
      * Set the output locales into a thread variable.
+     * The list isn't copied, so that shared pre-parsed lists (see {@link Locales#parseLanguageRanges(String)})
+     * are set without allocation. It must not be modified afterwards.
      *
      * @param outputLocales The output locales to set
      */
     public void setOutputLocales(List<Locale.LanguageRange> outputLocales) {
-
-        List<Locale.LanguageRange> languageRanges = this.outputLocales.get();
-
-        // Create language ranges if missing, else clear the list
-        if (languageRanges == null) {
-            languageRanges = new ArrayList<>(outputLocales.size());
-            this.outputLocales.set(languageRanges);
-        } else
-            languageRanges.clear();
-
-        // Add the language ranges
-        languageRanges.addAll(outputLocales);
+        this.outputLocales.set(outputLocales);
     }
 
     /**
      * Get the output locales from a thread variable.
      *
-     * @return The output locales
+     * @return The output locales, that must not be modified
      */
     public List<Locale.LanguageRange> getOutputLocales() {
 
         List<Locale.LanguageRange> languageRanges = this.outputLocales.get();
 
         if (CollectionUtils.isEmpty(languageRanges))
-            return new ArrayList<>(
-                    Collections.singletonList(
-                            new Locale.LanguageRange(
-                                    getDefaultLocale().toLanguageTag())));
+            return Locales.parseLanguageRanges(getDefaultLocale().toLanguageTag());
         else
             return languageRanges;
     }
 
+    /**
+     * Get the language tag of the output content: the first output language range having a language supported
+     * by the I18N domain, or the domain's default language tag.
+     *
+     * @return The output content language tag
+     */
+    public String getContentLanguageTag() {
+        return getLanguageResolution().getContentLanguageTag();
+    }
+
+    /**
+     * Get the resolution of the output locales against the languages of the I18N domain.
+     *
+     * @return The shared language resolution
+     */
+    public LanguageResolution getLanguageResolution() {
+        return getLanguageResolver().resolve(getOutputLocales());
+    }
+
     /**
      * Clear locales previously set
      */
@@ -135,12 +135,30 @@ public class ThreadLocaleHolder {
         outputLocales.set(null);
     }
 
+    /**
+     * Get the locale resolution table of the I18N domain, built once per domain instance.
+     * The table is rebuilt when the domain holder publishes a reloaded domain.
+     *
+     * @return The locale resolution table
+     */
+    private LanguageResolver getLanguageResolver() {
+
+        final Domain domain = i18nDomainHolder.getDomain();
+        LanguageResolver resolver = languageResolver;
+        if (resolver == null || resolver.getDomain() != domain) {
+            resolver = new LanguageResolver(domain);
+            languageResolver = resolver;
+        }
+
+        return resolver;
+    }
+
     /**
      * Get the domain's default locale
      *
      * @return The domain's default locale
      */
     private Locale getDefaultLocale() {
-        return Locale.forLanguageTag(i18nDomainHolder.getDomain().getDefaultLanguageTag());
+        return Locales.forLanguageTag(i18nDomainHolder.getDomain().getDefaultLanguageTag());
     }
 }
@@ -4,18 +4,26 @@ import info.jallaix.message.bean.Domain;
 import info.jallaix.message.dao.DomainDao;
 import info.jallaix.message.service.hateoas.DomainResourceAssembler;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.rest.core.event.BeforeCreateEvent;
 import org.springframework.data.rest.core.event.BeforeSaveEvent;
 import org.springframework.data.rest.core.event.ValidatingRepositoryEventListener;
+import org.springframework.data.rest.webmvc.PersistentEntityResource;
 import org.springframework.data.rest.webmvc.RepositoryRestController;
 import org.springframework.data.rest.webmvc.ResourceNotFoundException;
+import org.springframework.hateoas.LinkBuilder;
 import org.springframework.hateoas.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
 
 /**
  * <p/>
@@ -25,6 +33,26 @@ import org.springframework.web.bind.annotation.*;
  * This controller overrides the POST operation for the {@link Domain} entity so that it throws a {@code 409 Conflict} HTTP error when trying to update an existing {@link Domain}.
  * <p/>
  * It also overrides the PUT operation for the {@link Domain} entity so that it throws a {@code 404 Bad Request} HTTP error when trying to create a new {@link Domain}.
+ * <p/>
+ * Both operations rely on a single conditional write, see {@link DomainDao#create(Domain)} and {@link DomainDao#update(Domain)},
+ * so that the domain existence isn't checked before being written.
+ * <p/>
+ * The GET and HEAD operations for a {@link Domain} entity are overridden to support conditional requests: the response holds an ETag,
+ * and a request whose {@code If-None-Match} header matches it gets a {@code 304 Not Modified} response without body.
+ * The ETag is derived from the domain and description message versions, see {@link DomainDao#findEntityTag(String)},
+ * and it's the only ETag scheme of the domain resource.
+ * Since the domain description is localized from the {@code Accept-Language} header, the responses vary on it.
+ * <p/>
+ * GET operations are processed asynchronously: the servlet thread is released while Elasticsearch requests are pending,
+ * and the response is written once they are completed. The ETag is derived from the same reads as the domain.
+ * With an {@code If-None-Match} header, the ETag is probed first without reading the domain, so that a
+ * {@code 304 Not Modified} response neither reads nor localizes the domain, at the cost of a second round trip otherwise.
+ * As the response is built by an Elasticsearch thread, resource links are built from a link builder
+ * got by the request thread.
+ * <p/>
+ * The PUT, PATCH and DELETE operations support the {@code If-Match} header: a domain whose ETag doesn't match it
+ * isn't written, and a {@code 412 Precondition Failed} HTTP error is thrown. Concurrent updates of a domain are detected
+ * through its version, and throw a {@code 409 Conflict} HTTP error.
  */
 @RepositoryRestController
 public class DomainController {
@@ -66,16 +94,11 @@ public class DomainController {
 
         eventListener.onApplicationEvent(new BeforeCreateEvent(request.getBody()));
 
-        // Create the domain
-        Domain domain = request.getBody();
-        if (repository.exists(domain.getId()))            // The domain already exists => error
-            throw new DataIntegrityViolationException("Domain already exists");
-
-        else                                                // The domain doesn't exist => save and return resource
-            return new ResponseEntity<>(
-                    resourceAssembler.toResource(
-                            repository.save(domain)),
-                    HttpStatus.CREATED);
+        // Create the domain, a DataIntegrityViolationException is thrown if it already exists
+        return new ResponseEntity<>(
+                resourceAssembler.toResource(
+                        repository.create(request.getBody())),
+                HttpStatus.CREATED);
     }
 
     /**
@@ -83,49 +106,200 @@ public class DomainController {
      *
      * @param request An HTTP request that contains a {@link Domain} entity and headers
      * @param id      Identifier of the entity to update
+     * @param ifMatch The ETag the domain must match to be updated, if any
      * @return An HTTP response with a domain resource
      */
     @RequestMapping(method = RequestMethod.PUT, value = "/domains/{id}")
     public
     @ResponseBody
-    ResponseEntity<Resource> updateDomain(RequestEntity<Domain> request, @PathVariable String id) {
+    ResponseEntity<Resource> updateDomain(RequestEntity<Domain> request,
+                                          @PathVariable String id,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
         // Argument validation
         if (request.getBody() == null)
             throw new HttpMessageNotReadableException("Missing domain data");
 
+        // The updated domain is the one identified by the URI
+        request.getBody().setId(id);
         eventListener.onApplicationEvent(new BeforeSaveEvent(request.getBody()));
 
         // Update the domain
-        Domain domain = request.getBody();
-        if (!repository.exists(id))                         // The domain already exists => error
+        Domain domain = repository.update(request.getBody(), ifMatch);
+        if (domain == null)                                 // The domain doesn't exist => error
             throw new ResourceNotFoundException("Domain doesn't exists");
 
-        else                                                // The domain doesn't exist => save and return resource
+        else                                                // The domain exists => return resource
             return new ResponseEntity<>(
-                    resourceAssembler.toResource(
-                            repository.save(domain)),
+                    resourceAssembler.toResource(domain),
                     HttpStatus.OK);
     }
 
     /**
-     * Find a domain by code.
+     * Partially update an existing domain upon an HTTP PATCH operation.
      *
-     * @param code The domain code
+     * @param payload The domain read, merged with the request content
+     * @param id      Identifier of the entity to update
+     * @param ifMatch The ETag the domain must match to be updated, if any
      * @return An HTTP response with a domain resource
      */
-    @RequestMapping(method = RequestMethod.GET, value = "/domains/search/findByCode")
+    @RequestMapping(method = RequestMethod.PATCH, value = "/domains/{id}")
     public
     @ResponseBody
-    ResponseEntity<Resource> findByCode(@RequestParam(value = "code", required = true) String code) {
+    ResponseEntity<Resource> patchDomain(PersistentEntityResource payload,
+                                         @PathVariable String id,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        Domain domain = repository.findByCode(code);
+        // The updated domain is the one identified by the URI
+        final Domain patchedDomain = (Domain) payload.getContent();
+        patchedDomain.setId(id);
+        eventListener.onApplicationEvent(new BeforeSaveEvent(patchedDomain));
 
-        if (domain == null)
+        // Update the domain, on condition that it has the version it's been read with
+        Domain domain = repository.update(patchedDomain, ifMatch);
+        if (domain == null)                                 // The domain doesn't exist => error
             throw new ResourceNotFoundException("Domain doesn't exists");
-        else
+
+        else                                                // The domain exists => return resource
             return new ResponseEntity<>(
                     resourceAssembler.toResource(domain),
                     HttpStatus.OK);
     }
+
+    /**
+     * Delete an existing domain upon an HTTP DELETE operation.
+     *
+     * @param id      Identifier of the entity to delete
+     * @param ifMatch The ETag the domain must match to be deleted, if any
+     * @return An HTTP response without body
+     */
+    @RequestMapping(method = RequestMethod.DELETE, value = "/domains/{id}")
+    public
+    @ResponseBody
+    ResponseEntity<Void> deleteDomain(@PathVariable String id,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+        if (!repository.delete(id, ifMatch))
+            throw new ResourceNotFoundException("Domain doesn't exists");
+
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Get a domain upon an HTTP GET or HEAD operation, unless it's not modified since the client got it.
+     * The servlet thread is released while the domain is requested, its entity tag is derived from the same reads.
+     *
+     * @param id          Identifier of the entity to get
+     * @param ifNoneMatch The {@code If-None-Match} header of the request
+     * @return A deferred HTTP response with a domain resource, or without body if the domain isn't modified
+     */
+    @RequestMapping(method = {RequestMethod.GET, RequestMethod.HEAD}, value = "/domains/{id}")
+    public
+    @ResponseBody
+    DeferredResult<ResponseEntity<Resource>> getDomain(@PathVariable String id,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        // Resource links are built from the request URI, only available to the request thread
+        final LinkBuilder domainsLinkBuilder = resourceAssembler.linkToDomains();
+
+        // The domain is only read if the client doesn't hold its current representation
+        final Predicate<String> notModified = (ifNoneMatch == null) ? null : entityTag -> isNotModified(ifNoneMatch, entityTag);
+
+        return toDeferredResult(repository.findOneWithEntityTagAsync(id, notModified).thenApply(domainWithEntityTag -> {
+
+            if (domainWithEntityTag == null)
+                throw new ResourceNotFoundException("Domain doesn't exists");
+
+            final Domain domain = domainWithEntityTag.getLeft();
+            final String entityTag = domainWithEntityTag.getRight();
+
+            // The description depends on the requested languages, for caches to tell apart the domain representations
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE);
+            if (entityTag != null)
+                headers.setETag(entityTag);
+
+            // The domain isn't modified => 304 Not Modified
+            if (entityTag != null && isNotModified(ifNoneMatch, entityTag))
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+
+            return new ResponseEntity<>(
+                    resourceAssembler.toResource(domain, domainsLinkBuilder),
+                    headers,
+                    HttpStatus.OK);
+        }));
+    }
+
+    /**
+     * Find a domain by code.
+     * The servlet thread is released while the domain is requested.
+     *
+     * @param code The domain code
+     * @return A deferred HTTP response with a domain resource
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/domains/search/findByCode")
+    public
+    @ResponseBody
+    DeferredResult<ResponseEntity<Resource>> findByCode(@RequestParam(value = "code", required = true) String code) {
+
+        // Resource links are built from the request URI, only available to the request thread
+        final LinkBuilder domainsLinkBuilder = resourceAssembler.linkToDomains();
+
+        return toDeferredResult(repository.findByCodeAsync(code).<ResponseEntity<Resource>>thenApply(domain -> {
+
+            if (domain == null)
+                throw new ResourceNotFoundException("Domain doesn't exists");
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE);
+
+            return new ResponseEntity<>(
+                    resourceAssembler.toResource(domain, domainsLinkBuilder),
+                    headers,
+                    HttpStatus.OK);
+        }));
+    }
+
+
+    /**
+     * Indicate if an entity tag matches the {@code If-None-Match} header of a request.
+     *
+     * @param ifNoneMatch The {@code If-None-Match} header, may be {@code null}
+     * @param entityTag   The current entity tag
+     * @return {@code true} if the entity tag or a wildcard is listed in the header, weak entity tags included
+     */
+    private static boolean isNotModified(final String ifNoneMatch, final String entityTag) {
+
+        if (ifNoneMatch == null)
+            return false;
+
+        for (String clientEntityTag : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+            clientEntityTag = clientEntityTag.trim();
+            if ("*".equals(clientEntityTag) || entityTag.equals(clientEntityTag.replaceFirst("^W/", "")))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Adapt a future response to a deferred result, so that Spring MVC writes the response once the future is completed.
+     * Failures are unwrapped, so that they are handled as if the response was computed by the servlet thread.
+     *
+     * @param future The future response
+     * @param <T>    Type of the response
+     * @return The deferred result
+     */
+    private static <T> DeferredResult<T> toDeferredResult(final CompletableFuture<T> future) {
+
+        final DeferredResult<T> deferredResult = new DeferredResult<>();
+        future.whenComplete((result, e) -> {
+            if (e == null)
+                deferredResult.setResult(result);
+            else
+                deferredResult.setErrorResult((e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e);
+        });
+
+        return deferredResult;
+    }
 }
@@ -1,5 +1,6 @@
 package info.jallaix.message.service;
 
+import info.jallaix.message.dao.interceptor.Locales;
 import info.jallaix.message.dao.interceptor.ThreadLocaleHolder;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.HttpHeaders;
@@ -7,7 +8,6 @@ import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Locale;
 
 /**
  * Intercept HTTP requests to define language ranges for the current thread.
@@ -36,6 +36,7 @@ public class LanguageHandlerInterceptor extends HandlerInterceptorAdapter {
      * @param request  HTTP request
      * @param response HTTP response
      * @param handler  Target resource of the request
+     * @throws MalformedLanguageRangesException If the {@code Accept-Language} header is ill-formed
      */
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
@@ -45,8 +46,13 @@ public class LanguageHandlerInterceptor extends HandlerInterceptorAdapter {
 
         // Set language ranges for the current request
         String acceptLanguage = request.getHeader(HttpHeaders.ACCEPT_LANGUAGE);
-        if (StringUtils.isNotBlank(acceptLanguage))
-            threadLocaleHolder.setOutputLocales(Locale.LanguageRange.parse(acceptLanguage));
+        if (StringUtils.isNotBlank(acceptLanguage)) {
+            try {
+                threadLocaleHolder.setOutputLocales(Locales.parseLanguageRanges(acceptLanguage));
+            } catch (IllegalArgumentException e) {
+                throw new MalformedLanguageRangesException(acceptLanguage, e);
+            }
+        }
 
         return true;
     }
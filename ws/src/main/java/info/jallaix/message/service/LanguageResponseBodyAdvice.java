@@ -1,6 +1,5 @@
 package info.jallaix.message.service;
 
-import info.jallaix.message.config.DomainHolder;
 import info.jallaix.message.dao.interceptor.ThreadLocaleHolder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.MethodParameter;
@@ -13,21 +12,12 @@ import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
-import java.util.Collection;
-import java.util.Locale;
-
 /**
  * Define the Content-Language header in the HTTP response.
  */
 @ControllerAdvice(annotations = RepositoryRestController.class)
 public class LanguageResponseBodyAdvice implements ResponseBodyAdvice<Object> {
 
-    /**
-     * I18N domain holder
-     */
-    @Autowired
-    private DomainHolder i18nDomainHolder;
-
     /**
      * Locale data holder
      */
@@ -62,19 +52,8 @@ public class LanguageResponseBodyAdvice implements ResponseBodyAdvice<Object> {
     @Override
     public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType, Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
 
-        // Get supported language tags
-        Collection<String> supportedLanguageTags = i18nDomainHolder.getDomain().getAvailableLanguageTags();
-
-        // Find the output language tag
-        String outputLanguageTag = threadLocaleHolder.getOutputLocales()
-                .stream()
-                .map(Locale.LanguageRange::getRange)                                                        // Get the language tag part
-                .filter(tag -> supportedLanguageTags.contains(Locale.forLanguageTag(tag).getLanguage()))    // Filter for tags having a supported language
-                .findFirst()                                                                                // Get the most relevant tag
-                .orElse(i18nDomainHolder.getDomain().getDefaultLanguageTag());                              // Default language tag if none is found
-
         // Set the Content-Language header in the HTTP response
-        response.getHeaders().set(HttpHeaders.CONTENT_LANGUAGE, Locale.forLanguageTag(outputLanguageTag).toLanguageTag());
+        response.getHeaders().set(HttpHeaders.CONTENT_LANGUAGE, threadLocaleHolder.getContentLanguageTag());
         threadLocaleHolder.clear();
 
         return body;
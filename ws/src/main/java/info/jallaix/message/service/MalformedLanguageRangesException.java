@@ -0,0 +1,24 @@
+package info.jallaix.message.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.text.MessageFormat;
+
+/**
+ * This exception is thrown when the language ranges requested by a client, as a {@code locale} parameter
+ * or an {@code Accept-Language} header, are ill-formed.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class MalformedLanguageRangesException extends RuntimeException {
+
+    /**
+     * Constructor with language ranges.
+     *
+     * @param ranges The ill-formed language ranges
+     * @param cause  The parsing error
+     */
+    public MalformedLanguageRangesException(String ranges, Throwable cause) {
+        super(MessageFormat.format("The language ranges \"{0}\" are ill-formed.", ranges), cause);
+    }
+}
@@ -0,0 +1,117 @@
+package info.jallaix.message.service;
+
+import info.jallaix.message.bean.Domain;
+import info.jallaix.message.dao.DomainDao;
+import info.jallaix.message.dao.KeyMessageDao;
+import info.jallaix.message.dao.bundle.MessageBundle;
+import info.jallaix.message.dao.interceptor.Locales;
+import info.jallaix.message.dao.interceptor.ThreadLocaleHolder;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.data.rest.webmvc.ResourceNotFoundException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * <p>
+ * This controller serves the message bundle of a domain: all the domain's key messages resolved for one locale,
+ * as a flat map of message contents by keys.
+ * </p>
+ * <p>
+ * Clients load all their strings with a single request. The response holds an ETag computed from the bundle content
+ * and the resolved content language, so that it may be cached: a request whose {@code If-None-Match} header matches it
+ * gets a {@code 304 Not Modified} response. Since the bundle is resolved from the {@code Accept-Language} header,
+ * the response varies on it.
+ * </p>
+ */
+@RepositoryRestController
+public class MessageBundleController {
+
+    /**
+     * DAO to perform database operations with the Domain entity
+     */
+    @Autowired
+    private DomainDao domainRepository;
+
+    /**
+     * DAO to perform database operations with the KeyMessage entity
+     */
+    @Autowired
+    private KeyMessageDao keyMessageRepository;
+
+    /**
+     * Locale data holder
+     */
+    @Autowired
+    private ThreadLocaleHolder threadLocaleHolder;
+
+
+    /**
+     * Get the message bundle of a domain.
+     *
+     * @param id         Identifier of the domain
+     * @param locale     Language ranges to resolve the messages for, the {@code Accept-Language} header is used if missing
+     * @param webRequest The current request, used to check the {@code If-None-Match} header
+     * @param response   The current response, whose {@code Vary} header is set before it's known to be modified
+     * @return An HTTP response with the message contents mapped by keys, or {@code null} if the bundle isn't modified
+     * @throws MalformedLanguageRangesException If the locale parameter is ill-formed
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/domains/{id}/bundle")
+    public
+    @ResponseBody
+    ResponseEntity<Map<String, String>> getBundle(@PathVariable String id,
+                                                  @RequestParam(value = "locale", required = false) String locale,
+                                                  WebRequest webRequest,
+                                                  HttpServletResponse response) {
+
+        // The locale parameter overrides the Accept-Language header
+        if (StringUtils.isNotBlank(locale)) {
+            try {
+                threadLocaleHolder.setOutputLocales(Locales.parseLanguageRanges(locale));
+            } catch (IllegalArgumentException e) {
+                throw new MalformedLanguageRangesException(locale, e);
+            }
+        }
+
+        // The bundle only needs the domain's default language tag, the description isn't localized
+        Domain domain = domainRepository.findOneWithoutDescription(id);
+        if (domain == null)
+            throw new ResourceNotFoundException("Domain doesn't exists");
+
+        MessageBundle bundle = keyMessageRepository.findBundle(domain, threadLocaleHolder.getOutputLocales());
+        String entityTag = buildEntityTag(bundle, threadLocaleHolder.getContentLanguageTag());
+
+        // The bundle depends on the requested languages, for caches to tell apart its representations
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE);
+
+        // The bundle isn't modified => 304 Not Modified
+        if (webRequest.checkNotModified(entityTag))
+            return null;
+
+        return ResponseEntity.ok()
+                .eTag(entityTag)
+                .body(bundle.getContents());
+    }
+
+    /**
+     * Build the ETag of a bundle response from the bundle content and the resolved content language,
+     * so that representations with the same content but different {@code Content-Language} headers get different ETags.
+     *
+     * @param bundle             The resolved bundle
+     * @param contentLanguageTag The content language tag of the response
+     * @return The ETag
+     */
+    private static String buildEntityTag(final MessageBundle bundle, final String contentLanguageTag) {
+
+        return "\"" + DigestUtils.md5DigestAsHex(
+                (bundle.getEntityTag() + '\u0000' + contentLanguageTag).getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,166 @@
+package info.jallaix.message.service;
+
+import info.jallaix.message.dao.DomainDao;
+import info.jallaix.message.dao.EntityMessageDao;
+import info.jallaix.message.dao.KeyMessageDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.data.rest.webmvc.ResourceNotFoundException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * This controller exports all the messages of a domain, as newline delimited JSON or as CSV.
+ * </p>
+ * <p>
+ * Messages are read page by page with a scroll and written to the response output stream as they are read,
+ * so that the memory used doesn't depend on the domain size. The response is written synchronously,
+ * since an export may outlast the timeout of asynchronous requests.
+ * </p>
+ */
+@RepositoryRestController
+public class MessageExportController {
+
+    /**
+     * Columns of exported entity messages
+     */
+    private static final List<String> ENTITY_MESSAGE_COLUMNS = Arrays.asList("id", "domainId", "type", "entityId", "languageTag", "content");
+
+    /**
+     * Columns of exported key messages
+     */
+    private static final List<String> KEY_MESSAGE_COLUMNS = Arrays.asList("id", "domainId", "key", "languageTag", "content");
+
+    /**
+     * DAO to perform database operations with the Domain entity
+     */
+    @Autowired
+    private DomainDao domainRepository;
+
+    /**
+     * DAO to perform database operations with the EntityMessage entity
+     */
+    @Autowired
+    private EntityMessageDao entityMessageRepository;
+
+    /**
+     * DAO to perform database operations with the KeyMessage entity
+     */
+    @Autowired
+    private KeyMessageDao keyMessageRepository;
+
+
+    /**
+     * Export the entity messages of a domain.
+     *
+     * @param id       Identifier of the domain
+     * @param format   Format of the exported messages, {@code NDJSON} or {@code CSV}
+     * @param response The HTTP response the exported messages are written to
+     * @throws IOException If the response can't be written
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/domains/{id}/entityMessages/export")
+    public void exportEntityMessages(@PathVariable String id,
+                                     @RequestParam(value = "format", defaultValue = "NDJSON") MessageExportFormat format,
+                                     HttpServletResponse response) throws IOException {
+
+        checkDomain(id);
+
+        try (MessageExportFormat.RowWriter writer = startExport(response, id + "-entity-messages", format, ENTITY_MESSAGE_COLUMNS)) {
+            entityMessageRepository.forEachByDomainId(id, message -> writeRow(
+                    writer,
+                    message.getId(),
+                    message.getDomainId(),
+                    message.getType(),
+                    message.getEntityId(),
+                    message.getLanguageTag(),
+                    message.getContent()));
+        }
+    }
+
+    /**
+     * Export the key messages of a domain.
+     *
+     * @param id       Identifier of the domain
+     * @param format   Format of the exported messages, {@code NDJSON} or {@code CSV}
+     * @param response The HTTP response the exported messages are written to
+     * @throws IOException If the response can't be written
+     */
+    @RequestMapping(method = RequestMethod.GET, value = "/domains/{id}/keyMessages/export")
+    public void exportKeyMessages(@PathVariable String id,
+                                  @RequestParam(value = "format", defaultValue = "NDJSON") MessageExportFormat format,
+                                  HttpServletResponse response) throws IOException {
+
+        checkDomain(id);
+
+        try (MessageExportFormat.RowWriter writer = startExport(response, id + "-key-messages", format, KEY_MESSAGE_COLUMNS)) {
+            keyMessageRepository.forEachByDomainId(id, message -> writeRow(
+                    writer,
+                    message.getId(),
+                    message.getDomainId(),
+                    message.getKey(),
+                    message.getLanguageTag(),
+                    message.getContent()));
+        }
+    }
+
+
+    /*----------------------------------------------------------------------------------------------------------------*/
+    /*                                                   Private methods                                              */
+    /*----------------------------------------------------------------------------------------------------------------*/
+
+    /**
+     * Check a domain exists before streaming its messages, since the response status can't change once streaming started.
+     *
+     * @param id Identifier of the domain
+     * @throws ResourceNotFoundException If the domain doesn't exist
+     */
+    private void checkDomain(final String id) {
+
+        if (!domainRepository.exists(id))
+            throw new ResourceNotFoundException("Domain doesn't exists");
+    }
+
+    /**
+     * Set the headers of an HTTP response holding an export as an attachment, and open a writer on its output stream.
+     *
+     * @param response The HTTP response
+     * @param fileName Name of the exported file, without extension
+     * @param format   Format of the exported messages
+     * @param columns  Names of the exported columns
+     * @return The writer of exported rows
+     * @throws IOException If the response can't be written
+     */
+    private static MessageExportFormat.RowWriter startExport(final HttpServletResponse response,
+                                                             final String fileName,
+                                                             final MessageExportFormat format,
+                                                             final List<String> columns) throws IOException {
+
+        response.setContentType(format.getMediaType().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "." + format.getExtension() + "\"");
+
+        return format.newWriter(response.getOutputStream(), columns);
+    }
+
+    /**
+     * Write an exported row from a message action, that can't throw checked exceptions.
+     *
+     * @param writer The row writer
+     * @param values The row values
+     * @throws UncheckedIOException If the row can't be written, which stops scrolling the messages
+     */
+    private static void writeRow(final MessageExportFormat.RowWriter writer, final String... values) {
+
+        try {
+            writer.writeRow(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
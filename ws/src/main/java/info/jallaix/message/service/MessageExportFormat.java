@@ -0,0 +1,176 @@
+package info.jallaix.message.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.MediaType;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * <p>Format of an exported list of messages, written row by row to an output stream.</p>
+ * <ul>
+ * <li>{@link #NDJSON} - one JSON object per line, holding the columns as properties</li>
+ * <li>{@link #CSV} - a header line with the column names, then one line per row, as defined by RFC 4180</li>
+ * </ul>
+ */
+public enum MessageExportFormat {
+
+    /**
+     * Newline delimited JSON
+     */
+    NDJSON(new MediaType("application", "x-ndjson", StandardCharsets.UTF_8), "ndjson") {
+        @Override
+        public RowWriter newWriter(final OutputStream outputStream, final List<String> columns) throws IOException {
+
+            final JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream, JsonEncoding.UTF8);
+            return new RowWriter() {
+
+                @Override
+                public void writeRow(final String... values) throws IOException {
+
+                    generator.writeStartObject();
+                    for (int i = 0; i < columns.size(); i++)
+                        generator.writeStringField(columns.get(i), values[i]);
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                }
+
+                @Override
+                public void close() throws IOException {
+                    generator.close();
+                }
+            };
+        }
+    },
+
+    /**
+     * Comma separated values
+     */
+    CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv") {
+        @Override
+        public RowWriter newWriter(final OutputStream outputStream, final List<String> columns) throws IOException {
+
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            final RowWriter rowWriter = new RowWriter() {
+
+                @Override
+                public void writeRow(final String... values) throws IOException {
+
+                    for (int i = 0; i < values.length; i++) {
+                        if (i > 0)
+                            writer.write(',');
+                        writeCsvValue(writer, values[i]);
+                    }
+                    writer.write("\r\n");
+                }
+
+                @Override
+                public void close() throws IOException {
+                    writer.flush();
+                }
+            };
+
+            // Header line
+            rowWriter.writeRow(columns.toArray(new String[columns.size()]));
+            return rowWriter;
+        }
+    };
+
+    /**
+     * Factory of JSON generators, that neither separate root values nor close the output stream
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .setRootValueSeparator(null)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    /**
+     * Media type of the exported content
+     */
+    private final MediaType mediaType;
+
+    /**
+     * Extension of an exported file
+     */
+    private final String extension;
+
+
+    /**
+     * Constructor with media type and file extension.
+     *
+     * @param mediaType Media type of the exported content
+     * @param extension Extension of an exported file
+     */
+    MessageExportFormat(final MediaType mediaType, final String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    /**
+     * Get the media type of the exported content.
+     *
+     * @return The media type
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Get the extension of an exported file.
+     *
+     * @return The file extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Create a writer of rows in this format. Rows may be buffered until the writer is closed,
+     * closing the writer doesn't close the output stream.
+     *
+     * @param outputStream The output stream to write to
+     * @param columns      Names of the columns, in the order of the row values
+     * @return The row writer
+     * @throws IOException If the output stream can't be written
+     */
+    public abstract RowWriter newWriter(OutputStream outputStream, List<String> columns) throws IOException;
+
+    /**
+     * Write a CSV value, enclosed in double quotes if it holds a comma, a double quote or a line break.
+     * A {@code null} value is written as an empty value.
+     *
+     * @param writer The writer
+     * @param value  The value to write
+     * @throws IOException If the value can't be written
+     */
+    private static void writeCsvValue(final Writer writer, final String value) throws IOException {
+
+        if (value == null)
+            return;
+
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\r') < 0 && value.indexOf('\n') < 0)
+            writer.write(value);
+        else {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+
+    /**
+     * Writer of exported rows.
+     */
+    public interface RowWriter extends Closeable {
+
+        /**
+         * Write a row.
+         *
+         * @param values The row values, in the order of the columns
+         * @throws IOException If the row can't be written
+         */
+        void writeRow(String... values) throws IOException;
+    }
+}
@@ -9,7 +9,9 @@ import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.mvc.ResourceAssemblerSupport;
 
 /**
- * This class assembles domains with links to return HATEOAS resources.
+ * <p>This class assembles domains with links to return HATEOAS resources.</p>
+ * <p>Links are built from the URI of the current request. A domain read without blocking the request thread
+ * is assembled from a link builder got by the request thread, see {@link #linkToDomains()}.</p>
  */
 public class DomainResourceAssembler extends ResourceAssemblerSupport<Domain, Resource> {
 
@@ -32,12 +34,34 @@ public class DomainResourceAssembler extends ResourceAssemblerSupport<Domain, Re
      */
     @Override
     public Resource<Domain> toResource(Domain domain) {
+        return toResource(domain, linkToDomains());
+    }
+
+    /**
+     * Convert a {@link Domain} entity into a {@link Resource<Domain>} resource, with links built from the domains link.
+     * The current request isn't read, so that the resource may be assembled by any thread.
+     *
+     * @param domain             The {@link Domain} entity to convert
+     * @param domainsLinkBuilder The builder of the link to the domains collection, see {@link #linkToDomains()}
+     * @return The {@link Resource<Domain>} resource
+     */
+    public Resource<Domain> toResource(Domain domain, LinkBuilder domainsLinkBuilder) {
 
-        final LinkBuilder linkBuilder = entityLinks.linkForSingleResource(Domain.class, domain.getId());
+        final LinkBuilder linkBuilder = domainsLinkBuilder.slash(domain.getId());
         Resource<Domain> resource = new Resource<>(domain);
         resource.add(linkBuilder.withSelfRel());
         resource.add(linkBuilder.withRel("domain"));
 
         return resource;
     }
+
+    /**
+     * Get the builder of the link to the domains collection, from the URI of the current request.
+     * It must be called by the request thread.
+     *
+     * @return The link builder
+     */
+    public LinkBuilder linkToDomains() {
+        return entityLinks.linkFor(Domain.class);
+    }
 }
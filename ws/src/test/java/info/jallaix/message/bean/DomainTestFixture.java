@@ -129,23 +129,41 @@ public class DomainTestFixture implements ElasticsearchTestFixture<Domain> {
         List<Object> storedDocuments = new ArrayList<>(13);
 
         storedDocuments.add(new Domain("1", "i18n.message", Domain.DOMAIN_DESCRIPTION_TYPE, "en", Arrays.asList("en", "fr", "es")));
-        storedDocuments.add(new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, "1", "en", DOMAIN1_EN_DESCRIPTION));
-        storedDocuments.add(new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, "1", "en-US", DOMAIN1_EN_US_DESCRIPTION));
-        storedDocuments.add(new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, "1", "fr", DOMAIN1_FR_DESCRIPTION));
+        storedDocuments.add(newDescriptionMessage("1", "en", DOMAIN1_EN_DESCRIPTION));
+        storedDocuments.add(newDescriptionMessage("1", "en-US", DOMAIN1_EN_US_DESCRIPTION));
+        storedDocuments.add(newDescriptionMessage("1", "fr", DOMAIN1_FR_DESCRIPTION));
 
         storedDocuments.add(new Domain("2", "test.project1", Domain.DOMAIN_DESCRIPTION_TYPE, "en", Arrays.asList("en", "fr", "es")));
-        storedDocuments.add(new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, "2", "en", DOMAIN2_EN_DESCRIPTION));
-        storedDocuments.add(new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, "2", "fr", DOMAIN2_FR_DESCRIPTION));
+        storedDocuments.add(newDescriptionMessage("2", "en", DOMAIN2_EN_DESCRIPTION));
+        storedDocuments.add(newDescriptionMessage("2", "fr", DOMAIN2_FR_DESCRIPTION));
 
         storedDocuments.add(new Domain("3", "test.project2", Domain.DOMAIN_DESCRIPTION_TYPE, "fr", Arrays.asList("en", "fr", "es")));
-        storedDocuments.add(new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, "3", "en", DOMAIN3_EN_DESCRIPTION));
-        storedDocuments.add(new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, "3", "en-US", DOMAIN3_EN_US_DESCRIPTION));
-        storedDocuments.add(new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, "3", "fr", DOMAIN3_FR_DESCRIPTION));
+        storedDocuments.add(newDescriptionMessage("3", "en", DOMAIN3_EN_DESCRIPTION));
+        storedDocuments.add(newDescriptionMessage("3", "en-US", DOMAIN3_EN_US_DESCRIPTION));
+        storedDocuments.add(newDescriptionMessage("3", "fr", DOMAIN3_FR_DESCRIPTION));
 
         storedDocuments.add(new Domain("4", "test.project3", Domain.DOMAIN_DESCRIPTION_TYPE, "en", Arrays.asList("en", "fr", "es")));
-        storedDocuments.add(new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, "4", "en", DOMAIN4_EN_DESCRIPTION));
-        storedDocuments.add(new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, "4", "fr", DOMAIN4_FR_DESCRIPTION));
+        storedDocuments.add(newDescriptionMessage("4", "en", DOMAIN4_EN_DESCRIPTION));
+        storedDocuments.add(newDescriptionMessage("4", "fr", DOMAIN4_FR_DESCRIPTION));
 
         return storedDocuments;
     }
+
+    /**
+     * Return a new message for a domain description, identified like the ones saved by the domain DAO.
+     *
+     * @param domainId    Identifier of the described domain
+     * @param languageTag Language tag of the message
+     * @param content     Content of the message
+     * @return The message
+     */
+    private static EntityMessage newDescriptionMessage(final String domainId, final String languageTag, final String content) {
+        return new EntityMessage(
+                EntityMessage.buildId("1", Domain.DOMAIN_DESCRIPTION_TYPE, domainId, languageTag),
+                "1",
+                Domain.DOMAIN_DESCRIPTION_TYPE,
+                domainId,
+                languageTag,
+                content);
+    }
 }
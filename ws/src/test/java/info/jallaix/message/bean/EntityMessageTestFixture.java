@@ -18,7 +18,7 @@ public class EntityMessageTestFixture implements ElasticsearchTestFixture<Entity
      */
     @Override
     public EntityMessage newDocumentToInsert() {
-        return new EntityMessage("4", "1", Domain.DOMAIN_DESCRIPTION_TYPE, "2", "en", DomainTestFixture.DOMAIN2_EN_DESCRIPTION);
+        return newEntityMessage("1", "2", "en", DomainTestFixture.DOMAIN2_EN_DESCRIPTION);
     }
 
     /**
@@ -28,7 +28,7 @@ public class EntityMessageTestFixture implements ElasticsearchTestFixture<Entity
      */
     @Override
     public EntityMessage newDocumentToUpdate() {
-        return new EntityMessage("1", "1", Domain.DOMAIN_DESCRIPTION_TYPE, "1", "en", DomainTestFixture.DOMAIN1_EN_US_DESCRIPTION);
+        return newEntityMessage("1", "1", "en", DomainTestFixture.DOMAIN1_EN_US_DESCRIPTION);
     }
 
     /**
@@ -38,7 +38,7 @@ public class EntityMessageTestFixture implements ElasticsearchTestFixture<Entity
      */
     @Override
     public EntityMessage newExistingDocument() {
-        return new EntityMessage("2", "1", Domain.DOMAIN_DESCRIPTION_TYPE, "1", "fr", DomainTestFixture.DOMAIN1_FR_DESCRIPTION);
+        return newEntityMessage("1", "1", "fr", DomainTestFixture.DOMAIN1_FR_DESCRIPTION);
     }
 
     /**
@@ -71,10 +71,29 @@ public class EntityMessageTestFixture implements ElasticsearchTestFixture<Entity
 
         List<Object> storedDocuments = new ArrayList<>(3);
 
-        storedDocuments.add(new EntityMessage("1", "1", Domain.DOMAIN_DESCRIPTION_TYPE, "1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION));
-        storedDocuments.add(new EntityMessage("2", "1", Domain.DOMAIN_DESCRIPTION_TYPE, "1", "fr", DomainTestFixture.DOMAIN1_FR_DESCRIPTION));
-        storedDocuments.add(new EntityMessage("3", "1", Domain.DOMAIN_DESCRIPTION_TYPE, "1", "en-US", DomainTestFixture.DOMAIN1_EN_US_DESCRIPTION));
+        storedDocuments.add(newEntityMessage("1", "1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION));
+        storedDocuments.add(newEntityMessage("1", "1", "fr", DomainTestFixture.DOMAIN1_FR_DESCRIPTION));
+        storedDocuments.add(newEntityMessage("1", "1", "en-US", DomainTestFixture.DOMAIN1_EN_US_DESCRIPTION));
 
         return storedDocuments;
     }
+
+    /**
+     * Return a new domain description message, identified like the ones saved by the entity message DAO.
+     *
+     * @param domainId    Domain identifier of the message
+     * @param entityId    Identifier of the described domain
+     * @param languageTag Language tag of the message
+     * @param content     Content of the message
+     * @return The message
+     */
+    private static EntityMessage newEntityMessage(final String domainId, final String entityId, final String languageTag, final String content) {
+        return new EntityMessage(
+                EntityMessage.buildId(domainId, Domain.DOMAIN_DESCRIPTION_TYPE, entityId, languageTag),
+                domainId,
+                Domain.DOMAIN_DESCRIPTION_TYPE,
+                entityId,
+                languageTag,
+                content);
+    }
 }
@@ -18,7 +18,7 @@ public class KeyMessageTestFixture implements ElasticsearchTestFixture<KeyMessag
      */
     @Override
     public KeyMessage newDocumentToInsert() {
-        return new KeyMessage("4", "1", "key2", "en", DomainTestFixture.DOMAIN2_EN_DESCRIPTION);
+        return newKeyMessage("1", "key2", "en", DomainTestFixture.DOMAIN2_EN_DESCRIPTION);
     }
 
     /**
@@ -28,7 +28,7 @@ public class KeyMessageTestFixture implements ElasticsearchTestFixture<KeyMessag
      */
     @Override
     public KeyMessage newDocumentToUpdate() {
-        return new KeyMessage("1", "1", "key1", "en", DomainTestFixture.DOMAIN1_EN_US_DESCRIPTION);
+        return newKeyMessage("1", "key1", "en", DomainTestFixture.DOMAIN1_EN_US_DESCRIPTION);
     }
 
     /**
@@ -38,7 +38,7 @@ public class KeyMessageTestFixture implements ElasticsearchTestFixture<KeyMessag
      */
     @Override
     public KeyMessage newExistingDocument() {
-        return new KeyMessage("2", "1", "key1", "fr", DomainTestFixture.DOMAIN1_FR_DESCRIPTION);
+        return newKeyMessage("1", "key1", "fr", DomainTestFixture.DOMAIN1_FR_DESCRIPTION);
     }
 
     /**
@@ -71,10 +71,23 @@ public class KeyMessageTestFixture implements ElasticsearchTestFixture<KeyMessag
 
         List<Object> storedDocuments = new ArrayList<>(3);
 
-        storedDocuments.add(new KeyMessage("1", "1", "key1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION));
-        storedDocuments.add(new KeyMessage("2", "1", "key1", "fr", DomainTestFixture.DOMAIN1_FR_DESCRIPTION));
-        storedDocuments.add(new KeyMessage("3", "1", "key1", "en-US", DomainTestFixture.DOMAIN1_EN_US_DESCRIPTION));
+        storedDocuments.add(newKeyMessage("1", "key1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION));
+        storedDocuments.add(newKeyMessage("1", "key1", "fr", DomainTestFixture.DOMAIN1_FR_DESCRIPTION));
+        storedDocuments.add(newKeyMessage("1", "key1", "en-US", DomainTestFixture.DOMAIN1_EN_US_DESCRIPTION));
 
         return storedDocuments;
     }
+
+    /**
+     * Return a new message, identified like the ones saved by the key message DAO.
+     *
+     * @param domainId    Domain identifier of the message
+     * @param key         Key of the message
+     * @param languageTag Language tag of the message
+     * @param content     Content of the message
+     * @return The message
+     */
+    private static KeyMessage newKeyMessage(final String domainId, final String key, final String languageTag, final String content) {
+        return new KeyMessage(KeyMessage.buildId(domainId, key, languageTag), domainId, key, languageTag, content);
+    }
 }
@@ -0,0 +1,149 @@
+package info.jallaix.message.config;
+
+import info.jallaix.message.bean.Domain;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.GetQuery;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+/**
+ * With a ready timeout, the I18N domain holder must bootstrap the domain in the background once the application is ready,
+ * make requests wait for the bootstrap until the timeout, and retry a failed bootstrap.
+ */
+public class I18nDomainHolderTest {
+
+    /**
+     * Ready timeout of the tested holders
+     */
+    private static final long READY_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * I18N domain found in the index
+     */
+    private final Domain domain = new Domain(
+            "1", I18nDomainHolder.DOMAIN_CODE, I18nDomainHolder.DOMAIN_DESCRIPTION_TYPE, "en", Collections.singleton("en"));
+
+    /**
+     * Tested holder
+     */
+    private I18nDomainHolder holder;
+
+
+    /**
+     * Stop the background tasks of the tested holder.
+     */
+    @After
+    public void shutdownHolder() {
+
+        if (holder != null)
+            holder.shutdown();
+    }
+
+    /**
+     * A request received before the application is ready waits for the bootstrap, then gets the domain.
+     */
+    @Test
+    public void waitForBootstrap() throws Exception {
+
+        holder = new I18nDomainHolder(newEsOperations(false), 0, READY_TIMEOUT_MILLIS);
+        final CompletableFuture<Domain> request = CompletableFuture.supplyAsync(holder::getDomain);
+
+        Thread.sleep(100);
+        assertFalse(request.isDone());
+        assertFalse(holder.isReady());
+
+        holder.onApplicationEvent(newApplicationReadyEvent());
+
+        assertEquals(domain, request.get(READY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(holder.isReady());
+    }
+
+    /**
+     * A request fails with a {@link I18nDomainNotReadyException} if the bootstrap isn't over before the ready timeout.
+     */
+    @Test
+    public void failAfterReadyTimeout() {
+
+        holder = new I18nDomainHolder(newEsOperations(false), 0, 100);
+
+        final long startNanos = System.nanoTime();
+        try {
+            holder.getDomain();
+            fail("Should throw an I18nDomainNotReadyException");
+        } catch (I18nDomainNotReadyException e) {
+            assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    /**
+     * A failed bootstrap is retried, and the waiting requests get the domain once a retry succeeds.
+     */
+    @Test
+    public void retryFailedBootstrap() throws Exception {
+
+        holder = new I18nDomainHolder(newEsOperations(true), 0, READY_TIMEOUT_MILLIS);
+        holder.setBootstrapRetryDelayMillis(100);
+        holder.onApplicationEvent(newApplicationReadyEvent());
+
+        assertEquals(domain, holder.getDomain());
+    }
+
+    /**
+     * A request waiting for the bootstrap fails without waiting for the ready timeout if the holder is shut down.
+     */
+    @Test
+    public void failWhenShutDown() throws Exception {
+
+        holder = new I18nDomainHolder(newEsOperations(false), 0, READY_TIMEOUT_MILLIS);
+        final CompletableFuture<Domain> request = CompletableFuture.supplyAsync(holder::getDomain);
+
+        Thread.sleep(100);
+        holder.shutdown();
+
+        try {
+            request.get(READY_TIMEOUT_MILLIS / 2, TimeUnit.MILLISECONDS);
+            fail("Should throw an I18nDomainNotReadyException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof I18nDomainNotReadyException);
+        }
+    }
+
+
+    /**
+     * Build Elasticsearch operations finding the I18N domain in an existing index.
+     *
+     * @param failFirst {@code true} if the first index check fails
+     * @return The Elasticsearch operations
+     */
+    private ElasticsearchOperations newEsOperations(final boolean failFirst) {
+
+        final ElasticsearchOperations esOperations = createNiceMock(ElasticsearchOperations.class);
+        if (failFirst)
+            expect(esOperations.indexExists(Domain.class)).andThrow(new RuntimeException("Cluster unavailable")).andStubReturn(true);
+        else
+            expect(esOperations.indexExists(Domain.class)).andStubReturn(true);
+        expect(esOperations.queryForObject(anyObject(GetQuery.class), eq(Domain.class))).andStubReturn(domain);
+        replay(esOperations);
+
+        return esOperations;
+    }
+
+    /**
+     * Build an application ready event.
+     *
+     * @return The application ready event
+     */
+    private static ApplicationReadyEvent newApplicationReadyEvent() {
+        return new ApplicationReadyEvent(new SpringApplication(), new String[0], null);
+    }
+}
@@ -1,6 +1,5 @@
 package info.jallaix.message.dao;
 
-import com.esotericsoftware.kryo.Kryo;
 import info.jallaix.message.config.DomainHolder;
 import info.jallaix.message.bean.Domain;
 import info.jallaix.message.bean.EntityMessage;
@@ -30,16 +29,10 @@ public class DomainDaoChecker {
      */
     private ElasticsearchOperations esOperations;
 
-    /**
-     * Serialization framework
-     */
-    private Kryo kryo;
 
-
-    public DomainDaoChecker(DomainHolder i18nDomainHolder, ElasticsearchOperations esOperations, Kryo kryo) {
+    public DomainDaoChecker(DomainHolder i18nDomainHolder, ElasticsearchOperations esOperations) {
         this.i18nDomainHolder = i18nDomainHolder;
         this.esOperations = esOperations;
-        this.kryo = kryo;
     }
 
     /**
@@ -152,8 +145,7 @@ public class DomainDaoChecker {
         final Domain savedDomain = findDomain(domain.getId());
 
         // Domain description is a message code in the index => do not compare them
-        Domain originalDomain = kryo.copy(domain);
-        originalDomain.setDescription(savedDomain.getDescription());
+        Domain originalDomain = copyWithDescription(domain, savedDomain.getDescription());
 
         assertThat(savedDomain, is(originalDomain));
     }
@@ -193,10 +185,25 @@ public class DomainDaoChecker {
     public Domain internationalizeDomain(final Domain initial, final String description) {
 
         // Set the domain description found
-        Domain result = kryo.copy(initial);
-        result.setDescription(description);
+        return copyWithDescription(initial, description);
+    }
 
-        return result;
+    /**
+     * Copy a domain with another description.
+     *
+     * @param domain      The domain to copy
+     * @param description The description of the copy
+     * @return The copied domain
+     */
+    private static Domain copyWithDescription(final Domain domain, final String description) {
+
+        return new Domain(
+                domain.getId(),
+                domain.getCode(),
+                description,
+                domain.getDefaultLanguageTag(),
+                domain.getAvailableLanguageTags(),
+                domain.getVersion());
     }
 
     /**
@@ -1,24 +1,35 @@
 package info.jallaix.message.dao;
 
-import com.esotericsoftware.kryo.Kryo;
 import info.jallaix.message.bean.Domain;
 import info.jallaix.message.bean.DomainTestFixture;
 import info.jallaix.message.config.DomainHolder;
 import info.jallaix.message.config.TestDomainDaoConfiguration;
+import info.jallaix.message.dao.cache.EntityMessageCache;
+import info.jallaix.message.dao.impl.DomainDaoImpl;
+import info.jallaix.message.dao.interceptor.I18nMessageLocalizer;
 import info.jallaix.message.dao.interceptor.ThreadLocaleHolder;
 import info.jallaix.spring.data.es.test.fixture.ElasticsearchTestFixture;
 import info.jallaix.spring.data.es.test.testcase.BaseDaoElasticsearchTestCase;
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.elasticsearch.ElasticsearchException;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.repository.config.EnableElasticsearchRepositories;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.rules.SpringClassRule;
 import org.springframework.test.context.junit4.rules.SpringMethodRule;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.easymock.EasyMock.*;
 import static org.junit.Assert.*;
 
 /**
@@ -58,10 +69,16 @@ public class DomainDaoTest extends BaseDaoElasticsearchTestCase<Domain, String,
     private ElasticsearchOperations esOperations;
 
     /**
-     * Serialization framework
+     * Cache of entity messages
+     */
+    @Autowired
+    private EntityMessageCache entityMessageCache;
+
+    /**
+     * Custom implementation of the domain DAO
      */
     @Autowired
-    private Kryo kryo;
+    private DomainDaoImpl domainDaoImpl;
 
     /**
      * Locale data holder
@@ -103,11 +120,17 @@ public class DomainDaoTest extends BaseDaoElasticsearchTestCase<Domain, String,
     @Before
     public void initTest() {
 
+        // Discard messages cached before the index was loaded with the test fixture
+        entityMessageCache.clear();
+
+        // Take the I18N domain of the test fixture into account
+        i18nDomainHolder.reload();
+
         // Utility object that performs DAO checks
-        domainDaoChecker = new DomainDaoChecker(i18nDomainHolder, esOperations, kryo);
+        domainDaoChecker = new DomainDaoChecker(i18nDomainHolder, esOperations);
 
         // Domain customizer for DAO tests
-        domainDaoTestsCustomizer = new DomainDaoTestsCustomizer(domainDaoChecker, threadLocaleHolder, getTestFixture(), kryo);
+        domainDaoTestsCustomizer = new DomainDaoTestsCustomizer(domainDaoChecker, threadLocaleHolder, getTestFixture());
         setCustomizer(domainDaoTestsCustomizer);
         customizeTest(domainDaoTestsCustomizer);
     }
@@ -179,4 +202,178 @@ public class DomainDaoTest extends BaseDaoElasticsearchTestCase<Domain, String,
         assertNotNull(found);
         assertEquals(fixture, found);
     }
+
+    /**
+     * Getting a domain asynchronously returns {@code null} if there is no domain found.
+     */
+    @Test
+    public void findMissingEntityAsync() {
+
+        assertNull(getRepository().findOneAsync(getTestFixture().newDocumentToInsert().getId()).join());
+        assertNull(getRepository().findByCodeAsync(getTestFixture().newDocumentToInsert().getCode()).join());
+        assertNull(getRepository().findOneWithEntityTagAsync(getTestFixture().newDocumentToInsert().getId(), null).join());
+    }
+
+    /**
+     * Getting a domain asynchronously returns the same localized domain as a synchronous find,
+     * and the same entity tag when it's found with its entity tag.
+     */
+    @Test
+    public void findExistingEntityAsync() {
+
+        Domain fixture = getCustomizer().customizeFindOneFixture(getTestFixture().newExistingDocument());
+
+        assertEquals(fixture, getRepository().findOneAsync(fixture.getId()).join());
+        assertEquals(fixture, getRepository().findByCodeAsync(fixture.getCode()).join());
+
+        final Pair<Domain, String> domainWithEntityTag = getRepository().findOneWithEntityTagAsync(fixture.getId(), null).join();
+        assertEquals(fixture, domainWithEntityTag.getLeft());
+        assertEquals(getRepository().findEntityTag(fixture.getId()), domainWithEntityTag.getRight());
+    }
+
+    /**
+     * Getting a domain whose representation is held by the client returns its entity tag without reading
+     * nor localizing the domain, and the localized domain otherwise.
+     */
+    @Test
+    public void findExistingEntityNotModifiedAsync() {
+
+        Domain fixture = getCustomizer().customizeFindOneFixture(getTestFixture().newExistingDocument());
+        final String entityTag = getRepository().findEntityTag(fixture.getId());
+        assertNotNull(entityTag);
+
+        // The localizer must not be called while the client holds the current representation
+        final Object localizer = ReflectionTestUtils.getField(domainDaoImpl, "i18nMessageLocalizer");
+        final I18nMessageLocalizer unusedLocalizer = createMock(I18nMessageLocalizer.class);
+        replay(unusedLocalizer);
+        ReflectionTestUtils.setField(domainDaoImpl, "i18nMessageLocalizer", unusedLocalizer);
+        try {
+            final Pair<Domain, String> notModified = getRepository().findOneWithEntityTagAsync(fixture.getId(), entityTag::equals).join();
+            assertNull(notModified.getLeft());
+            assertEquals(entityTag, notModified.getRight());
+            verify(unusedLocalizer);
+        } finally {
+            ReflectionTestUtils.setField(domainDaoImpl, "i18nMessageLocalizer", localizer);
+        }
+
+        final Pair<Domain, String> modified = getRepository().findOneWithEntityTagAsync(fixture.getId(), "\"stale\""::equals).join();
+        assertEquals(fixture, modified.getLeft());
+        assertEquals(entityTag, modified.getRight());
+    }
+
+    /**
+     * Creating a domain that already exists is rejected by the write itself.
+     * The existing domain is defined by the {@link ElasticsearchTestFixture#newExistingDocument()} method.
+     */
+    @Test(expected = DataIntegrityViolationException.class)
+    public void createExistingEntity() {
+        getRepository().create(getTestFixture().newExistingDocument());
+    }
+
+    /**
+     * Updating a domain that doesn't exist returns {@code null} and writes nothing.
+     * The missing domain is defined by the {@link ElasticsearchTestFixture#newDocumentToInsert()} method.
+     */
+    @Test
+    public void updateMissingEntity() {
+
+        final Domain missingDomain = getTestFixture().newDocumentToInsert();
+
+        assertNull(getRepository().update(missingDomain));
+        assertFalse(getRepository().exists(missingDomain.getId()));
+    }
+
+    /**
+     * Updating a domain for a version it no longer has is rejected, and isn't retried.
+     * The existing domain is defined by the {@link ElasticsearchTestFixture#newDocumentToUpdate()} method.
+     */
+    @Test(expected = OptimisticLockingFailureException.class)
+    public void updateEntityWithStaleVersion() {
+
+        final Domain domain = getTestFixture().newDocumentToUpdate();
+        domain.setVersion(getRepository().findOne(domain.getId()).getVersion() + 1);
+
+        getRepository().update(domain);
+    }
+
+    /**
+     * Saving a list of domains reports the domains saved for a version they no longer have as failures,
+     * without overwriting them, and saves the other domains.
+     * The existing domain is defined by the {@link ElasticsearchTestFixture#newDocumentToUpdate()} method.
+     */
+    @Test
+    public void saveEntitiesWithStaleVersion() {
+
+        final Domain staleDomain = getTestFixture().newDocumentToUpdate();
+        final long version = getRepository().findOne(staleDomain.getId()).getVersion();
+        staleDomain.setVersion(version + 1);
+        final Domain newDomain = getTestFixture().newDocumentToInsert();
+
+        try {
+            getRepository().save(Arrays.asList(staleDomain, newDomain));
+            fail("The version conflict isn't reported");
+        } catch (ElasticsearchException e) {
+            assertEquals(Collections.singleton(staleDomain.getId()), e.getFailedDocuments().keySet());
+        }
+
+        assertEquals(Long.valueOf(version), getRepository().findOne(staleDomain.getId()).getVersion());
+        assertTrue(getRepository().exists(newDomain.getId()));
+    }
+
+    /**
+     * Updating a domain increments its version.
+     * The existing domain is defined by the {@link ElasticsearchTestFixture#newDocumentToUpdate()} method.
+     */
+    @Test
+    public void updateEntityIncrementsVersion() {
+
+        final Domain domain = getTestFixture().newDocumentToUpdate();
+        final long version = getRepository().findOne(domain.getId()).getVersion();
+
+        assertEquals(Long.valueOf(version + 1), getRepository().update(domain).getVersion());
+        assertEquals(Long.valueOf(version + 1), getRepository().findOne(domain.getId()).getVersion());
+    }
+
+    /**
+     * Updating a domain whose entity tag doesn't match the {@code If-Match} header is rejected, and writes nothing.
+     * A wildcard matches any existing domain.
+     */
+    @Test
+    public void updateEntityIfMatch() {
+
+        final Domain domain = getTestFixture().newDocumentToUpdate();
+        final long version = getRepository().findOne(domain.getId()).getVersion();
+
+        try {
+            getRepository().update(domain, "\"stale\"");
+            fail("The entity tag mismatch isn't detected");
+        } catch (EntityTagMismatchException e) {
+            assertEquals(Long.valueOf(version), getRepository().findOne(domain.getId()).getVersion());
+        }
+
+        assertNotNull(getRepository().update(getTestFixture().newDocumentToUpdate(), "*"));
+        assertNull(getRepository().update(getTestFixture().newDocumentToInsert(), "*"));
+    }
+
+    /**
+     * Saving the I18N domain reloads the domain holder, so that an added language is supported without a restart.
+     */
+    @Test
+    public void saveI18nDomainReloadsHolder() {
+
+        final Domain i18nDomain = i18nDomainHolder.getDomain();
+        final long version = i18nDomainHolder.getVersion();
+        assertFalse(i18nDomain.getAvailableLanguageTags().contains("de"));
+
+        try {
+            getRepository().save(new Domain(i18nDomain.getId(), i18nDomain.getCode(), "I18N messages", "en", Arrays.asList("en", "fr", "es", "de")));
+
+            assertTrue(i18nDomainHolder.getDomain().getAvailableLanguageTags().contains("de"));
+            assertEquals(version + 1, i18nDomainHolder.getVersion());
+        } finally {
+
+            // Restore the I18N domain of the test fixture
+            getRepository().save(new Domain(i18nDomain.getId(), i18nDomain.getCode(), "I18N messages", "en", Arrays.asList("en", "fr", "es")));
+        }
+    }
 }
@@ -1,6 +1,5 @@
 package info.jallaix.message.dao;
 
-import com.esotericsoftware.kryo.Kryo;
 import info.jallaix.message.bean.Domain;
 import info.jallaix.message.bean.EntityMessage;
 import info.jallaix.message.dao.interceptor.ThreadLocaleHolder;
@@ -39,11 +38,6 @@ public class DomainDaoTestsCustomizer extends BaseDaoTestsCustomizer<Domain> {
      */
     private ElasticsearchTestFixture<Domain> testFixture;
 
-    /**
-     * Serialization framework
-     */
-    private Kryo kryo;
-
     /**
      * Descriptions fixture used when finding many domains
      */
@@ -78,13 +72,11 @@ public class DomainDaoTestsCustomizer extends BaseDaoTestsCustomizer<Domain> {
     public DomainDaoTestsCustomizer(
             DomainDaoChecker domainDaoChecker,
             ThreadLocaleHolder threadLocaleHolder,
-            ElasticsearchTestFixture<Domain> testFixture,
-            Kryo kryo) {
+            ElasticsearchTestFixture<Domain> testFixture) {
 
         this.domainDaoChecker = domainDaoChecker;
         this.threadLocaleHolder = threadLocaleHolder;
         this.testFixture = testFixture;
-        this.kryo = kryo;
     }
 
     /**
@@ -3,18 +3,32 @@ package info.jallaix.message.dao;
 import info.jallaix.message.bean.EntityMessage;
 import info.jallaix.message.bean.EntityMessageTestFixture;
 import info.jallaix.message.config.TestDomainDaoConfiguration;
+import info.jallaix.message.dao.cache.EntityMessageCache;
 import info.jallaix.spring.data.es.test.fixture.ElasticsearchTestFixture;
 import info.jallaix.spring.data.es.test.testcase.BaseDaoElasticsearchTestCase;
+import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
 import org.springframework.data.elasticsearch.repository.config.EnableElasticsearchRepositories;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.rules.SpringClassRule;
 import org.springframework.test.context.junit4.rules.SpringMethodRule;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 /**
  * <p>The Entity Message DAO must verify some tests provided by {@link BaseDaoElasticsearchTestCase}.</p>
  */
@@ -37,6 +51,18 @@ public class EntityMessageDaoTest extends BaseDaoElasticsearchTestCase<EntityMes
     @Rule
     public final SpringMethodRule SPRING_METHOD_RULE = new SpringMethodRule();
 
+    /**
+     * Cache of entity messages
+     */
+    @Autowired
+    private EntityMessageCache entityMessageCache;
+
+    /**
+     * Elasticsearch operations
+     */
+    @Autowired
+    private ElasticsearchOperations esOperations;
+
 
     /*----------------------------------------------------------------------------------------------------------------*/
     /*                                                   Tests lifecycle                                              */
@@ -55,6 +81,14 @@ public class EntityMessageDaoTest extends BaseDaoElasticsearchTestCase<EntityMes
                 DaoTestedMethod.DeleteById.class);*/
     }
 
+    /**
+     * Discard messages cached before the index was loaded with the test fixture.
+     */
+    @Before
+    public void initTest() {
+        entityMessageCache.clear();
+    }
+
 
     /*----------------------------------------------------------------------------------------------------------------*/
     /*                                                     Test fixture                                               */
@@ -80,5 +114,142 @@ public class EntityMessageDaoTest extends BaseDaoElasticsearchTestCase<EntityMes
     /*                                                     Custom tests                                               */
     /*----------------------------------------------------------------------------------------------------------------*/
 
-    // TODO Prepare tests for custom DAO functions
+    /**
+     * Saving a message with an identifier that isn't derived from its data stores it under its derived identifier.
+     */
+    @Test
+    public void saveMessageWithArbitraryIdentifier() {
+
+        EntityMessage message = getTestFixture().newDocumentToInsert();
+        final String derivedId = message.getId();
+        message.setId("arbitrary");
+        getRepository().save(message);
+
+        assertEquals(derivedId, message.getId());
+        assertNull(getRepository().findOne("arbitrary"));
+        assertEquals(message, getRepository().findOne(message.getDomainId(), message.getType(), message.getEntityId(), message.getLanguageTag()));
+    }
+
+    /**
+     * Saving a message whose data changed deletes the document stored under its former identifier.
+     */
+    @Test
+    public void saveMessageWithChangedData() {
+
+        EntityMessage message = getTestFixture().newExistingDocument();
+        final String formerId = message.getId();
+        message.setLanguageTag("de");
+        getRepository().save(message);
+
+        assertEquals(getTestFixture().getStoredDocuments().size(), getRepository().count());
+        assertNull(getRepository().findOne(formerId));
+        assertEquals(message, getRepository().findOne(message.getId()));
+    }
+
+    /**
+     * Saving a message ignores its version: a lower version than the stored one doesn't conflict,
+     * and the stored document keeps its internal version.
+     */
+    @Test
+    public void saveMessageIgnoresVersion() {
+
+        EntityMessage message = getTestFixture().newDocumentToUpdate();
+        message.setVersion(100L);
+        getRepository().save(message);
+
+        message.setVersion(1L);
+        message.setContent(message.getContent() + " again");
+        getRepository().save(message);
+
+        final Document document = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        assertNull(message.getVersion());
+        assertEquals(message, getRepository().findOne(message.getId()));
+        assertTrue(esOperations.getClient().prepareGet(document.indexName(), document.type(), message.getId()).get().getVersion() < 100);
+    }
+
+    /**
+     * The message identifier migration runs once: a message indexed with a random identifier after the first run
+     * isn't migrated when the application starts again.
+     */
+    @Test
+    public void migrateMessageIdsOnce() {
+
+        // Forget any former run of the migration
+        final Document document = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        esOperations.getClient().prepareDelete(document.indexName(), MessageIdMigration.MARKER_TYPE, MessageIdMigration.MARKER_ID).get();
+
+        final MessageIdMigration migration = new MessageIdMigration(esOperations, true, entityMessageCache);
+        final ApplicationReadyEvent event = new ApplicationReadyEvent(new SpringApplication(), new String[0], null);
+
+        final EntityMessage message = getTestFixture().newDocumentToInsert();
+        final String derivedId = message.getId();
+        indexWithRandomId(message, "random1");
+        migration.onApplicationEvent(event);
+
+        assertFalse(exists("random1"));
+        assertTrue(exists(derivedId));
+
+        getRepository().delete(derivedId);
+        indexWithRandomId(message, "random2");
+        migration.onApplicationEvent(event);
+
+        assertTrue(exists("random2"));
+        assertFalse(exists(derivedId));
+    }
+
+    /**
+     * Updating a cached message through the repository replaces the cached message.
+     */
+    @Test
+    public void saveCachedMessage() {
+
+        EntityMessage message = getTestFixture().newDocumentToUpdate();
+        getRepository().findOne(message.getDomainId(), message.getType(), message.getEntityId(), message.getLanguageTag());
+        getRepository().save(message);
+
+        assertEquals(message, getRepository().findOne(message.getDomainId(), message.getType(), message.getEntityId(), message.getLanguageTag()));
+    }
+
+    /**
+     * Deleting a cached message through the repository removes it from the cache.
+     */
+    @Test
+    public void deleteCachedMessage() {
+
+        EntityMessage message = getTestFixture().newExistingDocument();
+        getRepository().findOne(message.getDomainId(), message.getType(), message.getEntityId(), message.getLanguageTag());
+        getRepository().delete(message.getId());
+
+        assertNull(getRepository().findOne(message.getDomainId(), message.getType(), message.getEntityId(), message.getLanguageTag()));
+    }
+
+
+    /**
+     * Index a message under an identifier that isn't derived from its data, as messages were indexed before
+     * identifiers were derived.
+     *
+     * @param message The message to index
+     * @param id      The random identifier
+     */
+    private void indexWithRandomId(final EntityMessage message, final String id) {
+
+        message.setId(id);
+        IndexQuery indexQuery = new IndexQuery();
+        indexQuery.setId(id);
+        indexQuery.setObject(message);
+        esOperations.index(indexQuery);
+        esOperations.refresh(EntityMessage.class, true);
+    }
+
+    /**
+     * Indicate if a message document exists, whether its identifier is derived from its data or not.
+     *
+     * @param id The message identifier
+     * @return {@code true} if the document exists
+     */
+    private boolean exists(final String id) {
+
+        final Document document = EntityMessage.class.getDeclaredAnnotation(Document.class);
+        return esOperations.getClient().prepareGet(document.indexName(), document.type(), id).get().isExists();
+    }
 }
@@ -1,12 +1,18 @@
 package info.jallaix.message.dao;
 
+import info.jallaix.message.bean.Domain;
+import info.jallaix.message.bean.DomainTestFixture;
 import info.jallaix.message.bean.KeyMessage;
 import info.jallaix.message.bean.KeyMessageTestFixture;
 import info.jallaix.message.config.TestDomainDaoConfiguration;
+import info.jallaix.message.dao.bundle.MessageBundleCache;
 import info.jallaix.spring.data.es.test.fixture.ElasticsearchTestFixture;
 import info.jallaix.spring.data.es.test.testcase.BaseDaoElasticsearchTestCase;
+import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
 import org.springframework.context.annotation.Import;
@@ -15,6 +21,11 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.rules.SpringClassRule;
 import org.springframework.test.context.junit4.rules.SpringMethodRule;
 
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
 /**
  * <p>The Key Message DAO must verify some tests provided by {@link BaseDaoElasticsearchTestCase}.</p>
  */
@@ -37,6 +48,12 @@ public class KeyMessageDaoTest extends BaseDaoElasticsearchTestCase<KeyMessage,
     @Rule
     public final SpringMethodRule SPRING_METHOD_RULE = new SpringMethodRule();
 
+    /**
+     * Cache of message bundle snapshots
+     */
+    @Autowired
+    private MessageBundleCache messageBundleCache;
+
 
     /*----------------------------------------------------------------------------------------------------------------*/
     /*                                                   Tests lifecycle                                              */
@@ -55,6 +72,14 @@ public class KeyMessageDaoTest extends BaseDaoElasticsearchTestCase<KeyMessage,
                 DaoTestedMethod.DeleteById.class);*/
     }
 
+    /**
+     * Discard bundle snapshots built before the index was loaded with the test fixture.
+     */
+    @Before
+    public void initTest() {
+        messageBundleCache.clear();
+    }
+
 
     /*----------------------------------------------------------------------------------------------------------------*/
     /*                                                     Test fixture                                               */
@@ -80,5 +105,128 @@ public class KeyMessageDaoTest extends BaseDaoElasticsearchTestCase<KeyMessage,
     /*                                                     Custom tests                                               */
     /*----------------------------------------------------------------------------------------------------------------*/
 
-    // TODO Prepare tests for custom DAO functions
+    /**
+     * Finding a message by domain, key and language tag returns the message if it exists.
+     */
+    @Test
+    public void findExistingMessageByKey() {
+
+        KeyMessage fixture = getTestFixture().newExistingDocument();
+        KeyMessage found = getRepository().findOne(fixture.getDomainId(), fixture.getKey(), fixture.getLanguageTag());
+
+        assertEquals(fixture, found);
+    }
+
+    /**
+     * Finding a message by domain, key and language tag returns {@code null} if the message doesn't exist.
+     */
+    @Test
+    public void findMissingMessageByKey() {
+
+        KeyMessage fixture = getTestFixture().newDocumentToInsert();
+        assertNull(getRepository().findOne(fixture.getDomainId(), fixture.getKey(), fixture.getLanguageTag()));
+    }
+
+    /**
+     * Finding messages by keys returns the existing messages only.
+     */
+    @Test
+    public void findMessagesByKeys() {
+
+        KeyMessage fixture = getTestFixture().newExistingDocument();
+        Iterable<KeyMessage> found = getRepository().findAll(
+                fixture.getDomainId(),
+                Arrays.asList(fixture.getKey(), getTestFixture().newDocumentToInsert().getKey()),
+                fixture.getLanguageTag());
+
+        assertEquals(Collections.singletonList(fixture), found);
+    }
+
+    /**
+     * The message bundle of a domain holds the best matching message content of each key.
+     */
+    @Test
+    public void findBundleForMatchingLocale() {
+
+        Map<String, String> bundle = getRepository().findBundle(newDomain(), Locale.LanguageRange.parse("fr-CA")).getContents();
+        assertEquals(Collections.singletonMap("key1", DomainTestFixture.DOMAIN1_FR_DESCRIPTION), bundle);
+    }
+
+    /**
+     * The message bundle of a domain holds the message contents for the domain's default language if no locale matches.
+     */
+    @Test
+    public void findBundleForDefaultLocale() {
+
+        Map<String, String> bundle = getRepository().findBundle(newDomain(), Locale.LanguageRange.parse("de")).getContents();
+        assertEquals(Collections.singletonMap("key1", DomainTestFixture.DOMAIN1_EN_DESCRIPTION), bundle);
+    }
+
+    /**
+     * Saving a message without identifier twice updates the message instead of inserting a duplicate.
+     */
+    @Test
+    public void saveMessageWithoutIdentifierTwice() {
+
+        KeyMessage message = getTestFixture().newDocumentToInsert();
+        message.setId(null);
+        getRepository().save(message);
+
+        KeyMessage updatedMessage = getTestFixture().newDocumentToInsert();
+        updatedMessage.setId(null);
+        updatedMessage.setContent(DomainTestFixture.DOMAIN2_FR_DESCRIPTION);
+        getRepository().save(updatedMessage);
+
+        assertEquals(getTestFixture().getStoredDocuments().size() + 1, getRepository().count());
+        assertEquals(updatedMessage, getRepository().findOne(message.getDomainId(), message.getKey(), message.getLanguageTag()));
+    }
+
+    /**
+     * Saving a message whose data changed stores it under its derived identifier and deletes its former document.
+     */
+    @Test
+    public void saveMessageWithChangedData() {
+
+        KeyMessage message = getTestFixture().newExistingDocument();
+        final String formerId = message.getId();
+        message.setKey("key2");
+        getRepository().save(message);
+
+        assertEquals(KeyMessage.buildId(message.getDomainId(), "key2", message.getLanguageTag()), message.getId());
+        assertEquals(getTestFixture().getStoredDocuments().size(), getRepository().count());
+        assertNull(getRepository().findOne(formerId));
+        assertEquals(message, getRepository().findOne(message.getDomainId(), "key2", message.getLanguageTag()));
+    }
+
+    /**
+     * Scanning the messages of a domain passes each stored message of the domain once.
+     */
+    @Test
+    public void forEachMessageOfDomain() {
+
+        final List<KeyMessage> scanned = new ArrayList<>();
+        getRepository().forEachByDomainId("1", scanned::add);
+
+        final List<KeyMessage> expected = getTestFixture().getStoredDocuments().stream()
+                .filter(KeyMessage.class::isInstance)
+                .map(KeyMessage.class::cast)
+                .filter(message -> "1".equals(message.getDomainId()))
+                .collect(Collectors.toList());
+        assertEquals(expected.size(), scanned.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(scanned));
+    }
+
+
+    /*----------------------------------------------------------------------------------------------------------------*/
+    /*                                                   Private methods                                              */
+    /*----------------------------------------------------------------------------------------------------------------*/
+
+    /**
+     * Get the domain the stored messages belong to.
+     *
+     * @return The domain
+     */
+    private Domain newDomain() {
+        return new Domain("1", "i18n.message", Domain.DOMAIN_DESCRIPTION_TYPE, "en", Arrays.asList("en", "fr", "es"));
+    }
 }
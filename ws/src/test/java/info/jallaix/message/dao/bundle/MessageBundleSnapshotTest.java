@@ -0,0 +1,103 @@
+package info.jallaix.message.dao.bundle;
+
+import info.jallaix.message.bean.KeyMessage;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * A message bundle snapshot must resolve each key to its best matching message content, and share resolved bundles.
+ */
+public class MessageBundleSnapshotTest {
+
+    /**
+     * Each key is resolved to the best matching language tag available for this key.
+     */
+    @Test
+    public void resolveBestMatchingContents() {
+
+        MessageBundle bundle = newSnapshot().resolve(Locale.LanguageRange.parse("fr-CA,en;q=0.5"));
+
+        assertThat(bundle.getContents().keySet(), contains("key1", "key2", "key3"));
+        assertThat(bundle.getContents(), hasEntry("key1", "Bonjour"));
+        assertThat(bundle.getContents(), hasEntry("key2", "Au revoir"));
+        assertThat(bundle.getContents(), hasEntry("key3", "Yes"));
+    }
+
+    /**
+     * A key is resolved to the default language tag if no language range matches, and is missing from the bundle
+     * if it has no message for the default language tag.
+     */
+    @Test
+    public void resolveDefaultContents() {
+
+        MessageBundle bundle = newSnapshot().resolve(Locale.LanguageRange.parse("de"));
+
+        assertThat(bundle.getContents().keySet(), contains("key1", "key3"));
+        assertThat(bundle.getContents(), hasEntry("key1", "Hello"));
+        assertThat(bundle.getContents(), hasEntry("key3", "Yes"));
+    }
+
+    /**
+     * Language ranges selecting the same language tags get the same bundle instance.
+     */
+    @Test
+    public void shareResolvedBundles() {
+
+        MessageBundleSnapshot snapshot = newSnapshot();
+        MessageBundle bundle = snapshot.resolve(Locale.LanguageRange.parse("fr-CA"));
+
+        assertThat(snapshot.resolve(Locale.LanguageRange.parse("fr-CA")), is(sameInstance(bundle)));
+        assertThat(snapshot.resolve(Locale.LanguageRange.parse("fr")), is(sameInstance(bundle)));
+        assertThat(snapshot.resolve(Locale.LanguageRange.parse("en")), is(not(sameInstance(bundle))));
+    }
+
+    /**
+     * Bundles with the same contents have the same entity tag, bundles with different contents have different ones.
+     */
+    @Test
+    public void computeEntityTags() {
+
+        MessageBundle frenchBundle = newSnapshot().resolve(Locale.LanguageRange.parse("fr"));
+
+        assertThat(newSnapshot().resolve(Locale.LanguageRange.parse("fr")).getEntityTag(), is(frenchBundle.getEntityTag()));
+        assertThat(newSnapshot().resolve(Locale.LanguageRange.parse("en")).getEntityTag(), is(not(frenchBundle.getEntityTag())));
+    }
+
+    /**
+     * Language tags stored in a non canonical form match the locales selected by lookup, and the default language tag.
+     */
+    @Test
+    public void resolveNonCanonicalLanguageTags() {
+
+        MessageBundleSnapshot snapshot = new MessageBundleSnapshot(
+                Arrays.asList(
+                        new KeyMessage(null, "1", "key1", "EN-us", "Hello"),
+                        new KeyMessage(null, "1", "key1", "FR-ca", "Bonjour")),
+                "EN-us");
+
+        assertThat(snapshot.resolve(Locale.LanguageRange.parse("fr-CA")).getContents(), hasEntry("key1", "Bonjour"));
+        assertThat(snapshot.resolve(Locale.LanguageRange.parse("de")).getContents(), hasEntry("key1", "Hello"));
+    }
+
+    /**
+     * Build a snapshot of messages having various language tags by key.
+     *
+     * @return The snapshot
+     */
+    private MessageBundleSnapshot newSnapshot() {
+
+        List<KeyMessage> messages = Arrays.asList(
+                new KeyMessage(null, "1", "key1", "en", "Hello"),
+                new KeyMessage(null, "1", "key1", "fr", "Bonjour"),
+                new KeyMessage(null, "1", "key2", "fr", "Au revoir"),
+                new KeyMessage(null, "1", "key3", "en", "Yes"));
+
+        return new MessageBundleSnapshot(messages, "en");
+    }
+}
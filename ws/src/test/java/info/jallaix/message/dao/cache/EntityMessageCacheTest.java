@@ -0,0 +1,216 @@
+package info.jallaix.message.dao.cache;
+
+import info.jallaix.message.bean.Domain;
+import info.jallaix.message.bean.DomainTestFixture;
+import info.jallaix.message.bean.EntityMessage;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The entity message cache must honor its size and time limits, and maintain its counters.
+ */
+public class EntityMessageCacheTest {
+
+    /**
+     * A cached message is returned as a copy and counted as a hit, a missing message is counted as a miss.
+     */
+    @Test
+    public void getCachedAndMissingMessages() {
+
+        EntityMessageCache cache = new EntityMessageCache(10, 60000, 60000);
+        EntityMessage message = newMessage("1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION);
+        cache.put(message);
+
+        EntityMessage cachedMessage = cache.get(EntityMessageKey.of(message));
+        assertThat(cachedMessage, is(message));
+        assertThat(cachedMessage, not(sameInstance(message)));
+        assertThat(cache.get(EntityMessageKey.of(newMessage("1", "fr", null))), is(nullValue()));
+
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    /**
+     * The least recently used message is evicted when the maximum size is reached.
+     */
+    @Test
+    public void evictLeastRecentlyUsedMessage() {
+
+        EntityMessageCache cache = new EntityMessageCache(2, 60000, 60000);
+        EntityMessage enMessage = newMessage("1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION);
+        EntityMessage frMessage = newMessage("1", "fr", DomainTestFixture.DOMAIN1_FR_DESCRIPTION);
+        EntityMessage enUsMessage = newMessage("1", "en-US", DomainTestFixture.DOMAIN1_EN_US_DESCRIPTION);
+
+        cache.put(enMessage);
+        cache.put(frMessage);
+        cache.get(EntityMessageKey.of(enMessage));
+        cache.put(enUsMessage);
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.getEvictionCount(), is(1L));
+        assertThat(cache.get(EntityMessageKey.of(frMessage)), is(nullValue()));
+        assertThat(cache.get(EntityMessageKey.of(enMessage)), is(enMessage));
+    }
+
+    /**
+     * An expired message is not returned.
+     */
+    @Test
+    public void expireMessage() {
+
+        EntityMessageCache cache = new EntityMessageCache(10, 0, 0);
+        EntityMessage message = newMessage("1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION);
+        cache.put(message);
+
+        assertThat(cache.get(EntityMessageKey.of(message)), is(nullValue()));
+        assertThat(cache.getEvictionCount(), is(1L));
+    }
+
+    /**
+     * A missing message entry is counted apart from misses, and is replaced when the message is cached.
+     */
+    @Test
+    public void replaceMissingMessage() {
+
+        EntityMessageCache cache = new EntityMessageCache(10, 60000, 60000);
+        EntityMessage message = newMessage("1", "en-GB", "Internationalised messages");
+        EntityMessageKey key = EntityMessageKey.of(message);
+        cache.merge(key, null);
+
+        assertThat(cache.isMissing(key), is(true));
+        assertThat(cache.get(key), is(nullValue()));
+        assertThat(cache.getMissingHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(0L));
+
+        cache.put(message);
+        assertThat(cache.isMissing(key), is(false));
+        assertThat(cache.get(key), is(message));
+    }
+
+    /**
+     * A single lookup tells apart a cached message, a missing message entry and an uncached key, and is counted once.
+     */
+    @Test
+    public void lookupMessage() {
+
+        EntityMessageCache cache = new EntityMessageCache(10, 60000, 60000);
+        EntityMessage message = newMessage("1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION);
+        EntityMessageKey missingKey = EntityMessageKey.of(newMessage("1", "en-GB", null));
+        cache.put(message);
+        cache.merge(missingKey, null);
+
+        EntityMessageCache.Lookup hit = cache.lookup(EntityMessageKey.of(message));
+        assertThat(hit.isAbsent(), is(false));
+        assertThat(hit.isMissing(), is(false));
+        assertThat(hit.getMessage(), is(message));
+
+        EntityMessageCache.Lookup missing = cache.lookup(missingKey);
+        assertThat(missing.isAbsent(), is(false));
+        assertThat(missing.isMissing(), is(true));
+        assertThat(missing.getMessage(), is(nullValue()));
+
+        EntityMessageCache.Lookup absent = cache.lookup(EntityMessageKey.of(newMessage("1", "fr", null)));
+        assertThat(absent.isAbsent(), is(true));
+        assertThat(absent.getMessage(), is(nullValue()));
+
+        assertThat(cache.getHitCount(), is(1L));
+        assertThat(cache.getMissingHitCount(), is(1L));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    /**
+     * A cached message takes precedence over a message found in an index that may not be refreshed.
+     */
+    @Test
+    public void mergeFoundMessage() {
+
+        EntityMessageCache cache = new EntityMessageCache(10, 60000, 60000);
+        EntityMessage writtenMessage = newMessage("1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION);
+        EntityMessage staleMessage = newMessage("1", "en", "Outdated description");
+        EntityMessage foundMessage = newMessage("1", "fr", DomainTestFixture.DOMAIN1_FR_DESCRIPTION);
+        cache.put(writtenMessage);
+
+        assertThat(cache.merge(EntityMessageKey.of(staleMessage), staleMessage), is(writtenMessage));
+        assertThat(cache.merge(EntityMessageKey.of(writtenMessage), null), is(writtenMessage));
+        assertThat(cache.merge(EntityMessageKey.of(foundMessage), foundMessage), is(foundMessage));
+        assertThat(cache.get(EntityMessageKey.of(foundMessage)), is(foundMessage));
+    }
+
+    /**
+     * Of a cached message and a message found with a known version, the newer one is kept.
+     */
+    @Test
+    public void mergeNewerFoundMessage() {
+
+        EntityMessageCache cache = new EntityMessageCache(10, 60000, 60000);
+        EntityMessage cachedMessage = newMessage("1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION);
+        cachedMessage.setVersion(2L);
+        EntityMessage olderMessage = newMessage("1", "en", "Outdated description");
+        olderMessage.setVersion(1L);
+        EntityMessage newerMessage = newMessage("1", "en", "Updated description");
+        newerMessage.setVersion(3L);
+        EntityMessageKey key = EntityMessageKey.of(cachedMessage);
+        cache.put(cachedMessage);
+
+        assertThat(cache.merge(key, olderMessage).getContent(), is(DomainTestFixture.DOMAIN1_EN_DESCRIPTION));
+        assertThat(cache.merge(key, newerMessage).getContent(), is("Updated description"));
+        assertThat(cache.get(key).getVersion(), is(3L));
+
+        cache.put(olderMessage);
+        assertThat(cache.get(key).getContent(), is("Updated description"));
+    }
+
+    /**
+     * A missing message entry expires on its own delay.
+     */
+    @Test
+    public void expireMissingMessage() {
+
+        EntityMessageCache cache = new EntityMessageCache(10, 60000, 0);
+        EntityMessageKey key = EntityMessageKey.of(newMessage("1", "en-GB", null));
+        cache.merge(key, null);
+
+        assertThat(cache.isMissing(key), is(false));
+    }
+
+    /**
+     * Invalidating entities removes their messages only.
+     */
+    @Test
+    public void invalidateEntities() {
+
+        EntityMessageCache cache = new EntityMessageCache(10, 60000, 60000);
+        EntityMessage message1 = newMessage("1", "en", DomainTestFixture.DOMAIN1_EN_DESCRIPTION);
+        EntityMessage message2 = newMessage("2", "en", DomainTestFixture.DOMAIN2_EN_DESCRIPTION);
+        EntityMessage message3 = newMessage("3", "en", DomainTestFixture.DOMAIN3_EN_DESCRIPTION);
+        cache.put(message1);
+        cache.put(message2);
+        cache.put(message3);
+
+        cache.invalidateEntity("1", "1");
+        cache.invalidateEntities("1", Arrays.asList("2", "4"));
+
+        assertThat(cache.get(EntityMessageKey.of(message1)), is(nullValue()));
+        assertThat(cache.get(EntityMessageKey.of(message2)), is(nullValue()));
+        assertThat(cache.get(EntityMessageKey.of(message3)), is(message3));
+
+        cache.invalidateDomain("1");
+        assertThat(cache.size(), is(0));
+    }
+
+    /**
+     * Build a domain description message for the I18N domain.
+     *
+     * @param entityId    The domain identifier
+     * @param languageTag The language tag
+     * @param content     The description content
+     * @return The message
+     */
+    private EntityMessage newMessage(String entityId, String languageTag, String content) {
+        return new EntityMessage(null, "1", Domain.DOMAIN_DESCRIPTION_TYPE, entityId, languageTag, content);
+    }
+}
@@ -0,0 +1,50 @@
+package info.jallaix.message.dao.interceptor;
+
+import info.jallaix.message.bean.Domain;
+import info.jallaix.message.bean.EntityMessage;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The holder must be filled from the entity classes found in the classpath, and report the scan.
+ */
+public class I18nMessagePropertiesHolderTest {
+
+    /**
+     * Entity classes are found in the classpath, only the ones having {@link I18nMessage} properties are held.
+     */
+    @Test
+    public void scanEntityClasses() {
+
+        I18nMessagePropertiesHolder holder = I18nMessagePropertiesHolder.scan(Domain.class.getPackage().getName());
+
+        assertThat(holder.getProperties(Domain.class), hasSize(1));
+        assertThat(holder.getProperties(EntityMessage.class), is(empty()));
+        assertThat(holder.getProperties(String.class), is(empty()));
+
+        assertThat(holder.getScanReport().getEntityClassCount(), is(3));
+        assertThat(holder.getScanReport().getLocalizedClassCount(), is(1));
+        assertThat(holder.getScanReport().getPropertyCount(), is(1));
+    }
+
+    /**
+     * A subclass of a scanned entity class, such as a proxy class, gets the properties of the entity class.
+     */
+    @Test
+    public void getSubclassProperties() {
+
+        I18nMessagePropertiesHolder holder = new I18nMessagePropertiesHolder(Domain.class);
+
+        assertThat(holder.getProperties(DomainSubclass.class), is(holder.getProperties(Domain.class)));
+        assertThat(holder.getProperties(DomainSubclass.class), hasSize(1));
+    }
+
+
+    /**
+     * Subclass of an entity class that isn't scanned.
+     */
+    private static class DomainSubclass extends Domain {
+    }
+}
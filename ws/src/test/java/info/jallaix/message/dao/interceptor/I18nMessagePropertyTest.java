@@ -0,0 +1,126 @@
+package info.jallaix.message.dao.interceptor;
+
+import info.jallaix.message.bean.Domain;
+import info.jallaix.message.bean.EntityMessage;
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Properties annotated with {@link I18nMessage} must be found in entity classes and their nested beans,
+ * and be read and written through their compiled accessors.
+ */
+public class I18nMessagePropertyTest {
+
+    /**
+     * The domain description is found, with the domain description's message type.
+     */
+    @Test
+    public void scanDomain() {
+
+        List<I18nMessageProperty> properties = I18nMessageProperty.scan(Domain.class);
+        assertThat(properties, hasSize(1));
+
+        I18nMessageProperty property = properties.get(0);
+        Domain domain = new Domain("1", "test.project", "Description", "en", Collections.singletonList("en"));
+        assertThat(property.getType(), is(Domain.DOMAIN_DESCRIPTION_TYPE));
+        assertThat(property.getEntityId(domain), is("1"));
+        assertThat(property.getValue(domain), is("Description"));
+
+        property.setValue(domain, "Localized description");
+        assertThat(domain.getDescription(), is("Localized description"));
+    }
+
+    /**
+     * Properties of nested beans are found, and nothing is set if a nested bean is {@code null}.
+     */
+    @Test
+    public void scanNestedBean() {
+
+        List<I18nMessageProperty> properties = I18nMessageProperty.scan(Item.class);
+        assertThat(properties, hasSize(1));
+
+        I18nMessageProperty property = properties.get(0);
+        Item item = new Item();
+        item.setId(42);
+        assertThat(property.getPath().toDotPath(), is("label.text"));
+        assertThat(property.getType(), is(Item.class.getName() + ".label.text"));
+        assertThat(property.getEntityId(item), is("42"));
+        assertThat(property.getValue(item), is(nullValue()));
+
+        property.setValue(item, "Ignored");
+        assertThat(item.getLabel(), is(nullValue()));
+
+        item.setLabel(new Label());
+        property.setValue(item, "Label");
+        assertThat(item.getLabel().getText(), is("Label"));
+    }
+
+    /**
+     * Entity classes without annotated property have no property.
+     */
+    @Test
+    public void scanWithoutProperty() {
+        assertThat(I18nMessageProperty.scan(EntityMessage.class), is(empty()));
+    }
+
+
+    /**
+     * Entity holding a localized property in a nested bean, and a recursive property.
+     */
+    public static class Item {
+
+        @Id
+        private long id;
+
+        private Label label;
+
+        private Item parent;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public Label getLabel() {
+            return label;
+        }
+
+        public void setLabel(Label label) {
+            this.label = label;
+        }
+
+        public Item getParent() {
+            return parent;
+        }
+
+        public void setParent(Item parent) {
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Nested bean holding a localized property.
+     */
+    public static class Label {
+
+        @I18nMessage
+        private String text;
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package info.jallaix.message.dao.interceptor;
+
+import info.jallaix.message.bean.Domain;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Language resolutions of a domain must select the same language tags as {@link Locale#lookup(List, java.util.Collection)},
+ * and be shared between calls.
+ */
+public class LanguageResolverTest {
+
+    /**
+     * Domain supporting English, French and Spanish, with Spanish as default language
+     */
+    private final LanguageResolver resolver =
+            new LanguageResolver(new Domain("1", "test.project", "Description", "es", Arrays.asList("en", "fr", "es")));
+
+
+    /**
+     * Candidate language tags are the supported language tags and their truncations, followed by the default one.
+     */
+    @Test
+    public void resolveCandidateLanguageTags() {
+
+        LanguageResolution resolution = resolver.resolve(Locales.parseLanguageRanges("fr-CA,de;q=0.9,en;q=0.5,it;q=0"));
+
+        assertThat(resolution.getCandidateLanguageTags(), contains("fr-CA", "fr", "en", "es"));
+        assertThat(resolution.getContentLanguageTag(), is("fr-CA"));
+        assertThat(resolution.getDefaultLanguageTag(), is("es"));
+    }
+
+    /**
+     * The default language tag is the content language if no language range is supported.
+     */
+    @Test
+    public void resolveUnsupportedLanguage() {
+
+        LanguageResolution resolution = resolver.resolve(Locales.parseLanguageRanges("de-DE"));
+
+        assertThat(resolution.getCandidateLanguageTags(), contains("es"));
+        assertThat(resolution.getContentLanguageTag(), is("es"));
+    }
+
+    /**
+     * Existing language tags are looked up in the fallback chain order.
+     */
+    @Test
+    public void lookupExistingLanguageTag() {
+
+        LanguageResolution resolution = resolver.resolve(Locales.parseLanguageRanges("fr-CA,en;q=0.5"));
+
+        assertThat(resolution.lookup(Arrays.asList("en", "fr", "es")), is("fr"));
+        assertThat(resolution.lookup(Arrays.asList("en", "es")), is("en"));
+        assertThat(resolution.lookup(Arrays.asList("es")), is("es"));
+    }
+
+    /**
+     * Wildcard language ranges have unbounded candidates, and are looked up like {@link Locale#lookup(List, java.util.Collection)}:
+     * the wildcard itself selects nothing, so the default language tag is selected.
+     */
+    @Test
+    public void resolveWildcard() {
+
+        LanguageResolution resolution = resolver.resolve(Locales.parseLanguageRanges("*"));
+
+        assertThat(resolution.getCandidateLanguageTags(), is(nullValue()));
+        assertThat(resolution.lookup(Arrays.asList("en", "fr")), is("es"));
+    }
+
+    /**
+     * Resolutions are memoized by language ranges.
+     */
+    @Test
+    public void resolveMemoized() {
+
+        assertThat(resolver.resolve(Locales.parseLanguageRanges("fr-CA,en;q=0.5")),
+                is(sameInstance(resolver.resolve(Locale.LanguageRange.parse("fr-CA,en;q=0.5")))));
+    }
+}
@@ -0,0 +1,39 @@
+package info.jallaix.message.dao.interceptor;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Parsed language data must be equal to the ones parsed by {@link Locale}, and shared between calls.
+ */
+public class LocalesTest {
+
+    /**
+     * Language ranges are parsed once, and the shared list can't be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void parseLanguageRanges() {
+
+        String acceptLanguage = "fr-CA,fr;q=0.8,en;q=0.5";
+
+        assertThat(Locales.parseLanguageRanges(acceptLanguage), is(Locale.LanguageRange.parse(acceptLanguage)));
+        assertThat(Locales.parseLanguageRanges(acceptLanguage), is(sameInstance(Locales.parseLanguageRanges(acceptLanguage))));
+
+        Locales.parseLanguageRanges(acceptLanguage).clear();
+    }
+
+    /**
+     * Locales and canonical language tags are shared between calls.
+     */
+    @Test
+    public void forLanguageTag() {
+
+        assertThat(Locales.forLanguageTag("en-US"), is(Locale.forLanguageTag("en-US")));
+        assertThat(Locales.forLanguageTag("en-US"), is(sameInstance(Locales.forLanguageTag("en-US"))));
+        assertThat(Locales.toCanonicalLanguageTag("en-us"), is("en-US"));
+    }
+}
@@ -1,6 +1,5 @@
 package info.jallaix.message.service;
 
-import com.esotericsoftware.kryo.Kryo;
 import info.jallaix.message.bean.Domain;
 import info.jallaix.message.bean.DomainRestTestFixture;
 import info.jallaix.message.bean.DomainTestFixture;
@@ -10,6 +9,7 @@ import info.jallaix.message.dao.DomainDao;
 import info.jallaix.message.dao.DomainDaoChecker;
 import info.jallaix.message.dao.DomainDaoTestUtils;
 import info.jallaix.message.dao.DomainDaoTestsCustomizer;
+import info.jallaix.message.dao.cache.EntityMessageCache;
 import info.jallaix.message.dao.interceptor.ThreadLocaleHolder;
 import info.jallaix.spring.data.es.test.fixture.ElasticsearchTestFixture;
 import info.jallaix.spring.data.es.test.fixture.RestElasticsearchTestFixture;
@@ -35,6 +35,7 @@ import java.util.List;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
@@ -65,10 +66,10 @@ public class DomainRestTest extends BaseRestElasticsearchTestCase<Domain, String
     private ElasticsearchOperations esOperations;
 
     /**
-     * Serialization framework
+     * Cache of entity messages
      */
     @Autowired
-    private Kryo kryo;
+    private EntityMessageCache entityMessageCache;
 
     /**
      * Locale data holder
@@ -109,13 +110,15 @@ public class DomainRestTest extends BaseRestElasticsearchTestCase<Domain, String
     @Before
     public void initTest() throws Exception {
 
+        // Discard messages cached before the index was loaded with the test fixture
+        entityMessageCache.clear();
+
         // Domain customizer for DAO tests
         domainDaoTestsCustomizer =
                 new DomainDaoTestsCustomizer(
-                        new DomainDaoChecker(i18nDomainHolder, esOperations, kryo),
+                        new DomainDaoChecker(i18nDomainHolder, esOperations),
                         threadLocaleHolder,
-                        getTestFixture(),
-                        kryo);
+                        getTestFixture());
         setCustomizer(domainDaoTestsCustomizer);
         customizeTest(domainDaoTestsCustomizer);
     }
@@ -248,6 +251,176 @@ public class DomainRestTest extends BaseRestElasticsearchTestCase<Domain, String
         }
     }
 
+    /**
+     * Getting a domain by identifier returns this entity in HATEOAS format, with links to the requested server,
+     * and a {@code 200 Ok} HTTP status code if the domain is found.
+     * The existing domain is defined by the {@link ElasticsearchTestFixture#newExistingDocument()} method.
+     */
+    @Test
+    public void findExistingEntityById() {
+
+        final HttpEntity<?> httpEntity = convertToHttpEntity(null);             // Define Hal+Json HTTP entity
+
+        Domain existingDomain = getCustomizer().customizeFindOneFixture(getTestFixture().newExistingDocument());
+        final Resource<Domain> expectedResource = convertToResource(existingDomain);
+
+        try {
+            // Send a GET request
+            final ResponseEntity<Resource<Domain>> responseEntity =
+                    restTemplate.exchange(
+                            getServerUri() + "/domains/" + existingDomain.getId(),
+                            HttpMethod.GET,
+                            httpEntity,
+                            getRestTestFixture().getResourceType());
+
+            // Verify the expected HTTP status code and response body
+            assertThat(responseEntity, is(notNullValue()));
+            assertThat(responseEntity.getStatusCode(), is(HttpStatus.OK));
+            assertThat(responseEntity.getBody(), is(expectedResource));
+        }
+
+        // The GET request results in an error response
+        catch (HttpStatusCodeException e) {
+            fail("An unexpected exception was thrown.\n" + e);
+        }
+    }
+
+    /**
+     * Getting a domain returns an ETag and a {@code Vary: Accept-Language} header, and a {@code 304 Not Modified}
+     * HTTP status code without body if the request's {@code If-None-Match} header matches this ETag.
+     * The existing domain is defined by the {@link ElasticsearchTestFixture#newExistingDocument()} method.
+     */
+    @Test
+    public void findExistingEntityNotModified() {
+
+        final HttpEntity<?> httpEntity = convertToHttpEntity(null);             // Define Hal+Json HTTP entity
+        final String domainUri = getServerUri() + "/domains/" + getTestFixture().newExistingDocument().getId();
+
+        try {
+            // Send a first GET request to get the ETag
+            final ResponseEntity<Resource<Domain>> responseEntity =
+                    restTemplate.exchange(domainUri, HttpMethod.GET, httpEntity, getRestTestFixture().getResourceType());
+            assertThat(responseEntity.getStatusCode(), is(HttpStatus.OK));
+            assertThat(responseEntity.getHeaders().getETag(), is(notNullValue()));
+            assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.VARY), is(HttpHeaders.ACCEPT_LANGUAGE));
+
+            // Send a conditional GET request with the ETag
+            final HttpHeaders conditionalHeaders = new HttpHeaders();
+            conditionalHeaders.putAll(httpEntity.getHeaders());
+            conditionalHeaders.setIfNoneMatch(responseEntity.getHeaders().getETag());
+            final ResponseEntity<Resource<Domain>> conditionalResponseEntity =
+                    restTemplate.exchange(domainUri, HttpMethod.GET, new HttpEntity<>(conditionalHeaders), getRestTestFixture().getResourceType());
+
+            // Verify the expected HTTP status code, Vary header and empty response body
+            assertThat(conditionalResponseEntity.getStatusCode(), is(HttpStatus.NOT_MODIFIED));
+            assertThat(conditionalResponseEntity.getHeaders().getFirst(HttpHeaders.VARY), is(HttpHeaders.ACCEPT_LANGUAGE));
+            assertThat(conditionalResponseEntity.getBody(), is(nullValue()));
+        }
+
+        // The GET request results in an error response
+        catch (HttpStatusCodeException e) {
+            fail("An unexpected exception was thrown.\n" + e);
+        }
+    }
+
+    /**
+     * A HEAD request returns the ETag of a GET request, and a DELETE request whose {@code If-Match} header doesn't match
+     * this ETag returns a {@code 412 Precondition Failed} HTTP status code without deleting the domain.
+     * The existing domain is defined by the {@link ElasticsearchTestFixture#newExistingDocument()} method.
+     */
+    @Test
+    public void deleteExistingEntityIfMatch() {
+
+        final HttpEntity<?> httpEntity = convertToHttpEntity(null);             // Define Hal+Json HTTP entity
+        final String domainUri = getServerUri() + "/domains/" + getTestFixture().newExistingDocument().getId();
+
+        // Get the same ETag with GET and HEAD requests
+        final String entityTag = restTemplate.exchange(domainUri, HttpMethod.GET, httpEntity, getRestTestFixture().getResourceType())
+                .getHeaders().getETag();
+        assertThat(entityTag, is(notNullValue()));
+        assertThat(restTemplate.exchange(domainUri, HttpMethod.HEAD, httpEntity, Void.class).getHeaders().getETag(), is(entityTag));
+
+        final HttpHeaders conditionalHeaders = new HttpHeaders();
+        conditionalHeaders.putAll(httpEntity.getHeaders());
+
+        // Send a DELETE request with a stale ETag
+        try {
+            conditionalHeaders.setIfMatch("\"stale\"");
+            restTemplate.exchange(domainUri, HttpMethod.DELETE, new HttpEntity<>(conditionalHeaders), Void.class);
+
+            fail("Should return a " + HttpStatus.PRECONDITION_FAILED.value() + " " + HttpStatus.PRECONDITION_FAILED.name() + " response");
+        } catch (HttpStatusCodeException e) {
+            assertThat(e.getStatusCode(), is(HttpStatus.PRECONDITION_FAILED));  // Verify the expected HTTP status code
+        }
+        assertThat(restTemplate.exchange(domainUri, HttpMethod.HEAD, httpEntity, Void.class).getStatusCode(), is(HttpStatus.OK));
+
+        // Send a DELETE request with the current ETag
+        conditionalHeaders.setIfMatch(entityTag);
+        assertThat(
+                restTemplate.exchange(domainUri, HttpMethod.DELETE, new HttpEntity<>(conditionalHeaders), Void.class).getStatusCode(),
+                is(HttpStatus.NO_CONTENT));
+    }
+
+    /**
+     * Getting the message bundle of a domain with an ill-formed locale returns a {@code 400 Bad Request} HTTP status code.
+     */
+    @Test
+    public void findBundleWithMalformedLocale() {
+
+        final HttpEntity<?> httpEntity = convertToHttpEntity(null);             // Define Hal+Json HTTP entity
+
+        try {
+            // Send a GET request with a language range weight greater than 1
+            restTemplate.exchange(
+                    getServerUri() + "/domains/" + getTestFixture().newExistingDocument().getId() + "/bundle?locale=en;q=2",
+                    HttpMethod.GET,
+                    httpEntity,
+                    String.class);
+
+            fail("Should return a " + HttpStatus.BAD_REQUEST.value() + " " + HttpStatus.BAD_REQUEST.name() + " response");
+        }
+
+        // The GET request results in an error response
+        catch (HttpStatusCodeException e) {
+            assertThat(e.getStatusCode(), is(HttpStatus.BAD_REQUEST));  // Verify the expected HTTP status code
+        }
+    }
+
+    /**
+     * Getting the message bundle of a domain returns an ETag and a {@code Vary: Accept-Language} header,
+     * also held by the {@code 304 Not Modified} response to a request whose {@code If-None-Match} header matches the ETag.
+     */
+    @Test
+    public void findBundleVariesOnAcceptLanguage() {
+
+        final HttpEntity<?> httpEntity = convertToHttpEntity(null);             // Define Hal+Json HTTP entity
+        final String bundleUri = getServerUri() + "/domains/" + getTestFixture().newExistingDocument().getId() + "/bundle";
+
+        try {
+            // Send a first GET request to get the ETag
+            final ResponseEntity<String> responseEntity = restTemplate.exchange(bundleUri, HttpMethod.GET, httpEntity, String.class);
+            assertThat(responseEntity.getStatusCode(), is(HttpStatus.OK));
+            assertThat(responseEntity.getHeaders().getETag(), is(notNullValue()));
+            assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.VARY), is(HttpHeaders.ACCEPT_LANGUAGE));
+
+            // Send a conditional GET request with the ETag
+            final HttpHeaders conditionalHeaders = new HttpHeaders();
+            conditionalHeaders.putAll(httpEntity.getHeaders());
+            conditionalHeaders.setIfNoneMatch(responseEntity.getHeaders().getETag());
+            final ResponseEntity<String> conditionalResponseEntity =
+                    restTemplate.exchange(bundleUri, HttpMethod.GET, new HttpEntity<>(conditionalHeaders), String.class);
+
+            // Verify the expected HTTP status code and Vary header
+            assertThat(conditionalResponseEntity.getStatusCode(), is(HttpStatus.NOT_MODIFIED));
+            assertThat(conditionalResponseEntity.getHeaders().getFirst(HttpHeaders.VARY), is(HttpHeaders.ACCEPT_LANGUAGE));
+        }
+
+        // The GET request results in an error response
+        catch (HttpStatusCodeException e) {
+            fail("An unexpected exception was thrown.\n" + e);
+        }
+    }
+
     /**
      * Get the search HATEOAS link.
      *
@@ -0,0 +1,60 @@
+package info.jallaix.message.service;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Exported rows must be written as one JSON object per line, or as RFC 4180 CSV lines after a header line.
+ */
+public class MessageExportFormatTest {
+
+    /**
+     * Each NDJSON row is a JSON object on its own line, {@code null} values are written as JSON nulls.
+     */
+    @Test
+    public void writeNdjson() throws IOException {
+
+        assertEquals(
+                "{\"id\":\"1\",\"content\":\"Line 1\\nLine 2\"}\n{\"id\":\"2\",\"content\":null}\n",
+                write(MessageExportFormat.NDJSON));
+    }
+
+    /**
+     * CSV values holding separators, double quotes or line breaks are quoted, {@code null} values are empty.
+     */
+    @Test
+    public void writeCsv() throws IOException {
+
+        assertEquals(
+                "id,content\r\n1,\"Line 1\nLine 2\"\r\n2,\r\n3,\"Say \"\"hi\"\", then leave\"\r\n",
+                write(MessageExportFormat.CSV, new String[]{"3", "Say \"hi\", then leave"}));
+    }
+
+
+    /**
+     * Write rows with the columns {@code id} and {@code content}.
+     *
+     * @param format    The export format
+     * @param extraRows Rows written after the common ones
+     * @return The written content
+     * @throws IOException If the rows can't be written
+     */
+    private static String write(MessageExportFormat format, String[]... extraRows) throws IOException {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (MessageExportFormat.RowWriter writer = format.newWriter(outputStream, Arrays.asList("id", "content"))) {
+            writer.writeRow("1", "Line 1\nLine 2");
+            writer.writeRow("2", null);
+            for (String[] row : extraRows)
+                writer.writeRow(row);
+        }
+
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+}